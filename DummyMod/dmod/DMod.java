@@ -1,20 +1,29 @@
 package dmod;
 
+import java.util.Random;
+
 import de.omnikryptec.event.EventSubscription;
 import de.omnikryptec.util.data.Color;
-import de.omnikryptec.util.math.Mathf;
 import de.pcfreak9000.space.core.registry.GameRegistry;
 import de.pcfreak9000.space.mod.Instance;
 import de.pcfreak9000.space.mod.Mod;
 import de.pcfreak9000.space.mod.ModLoaderEvents;
 import de.pcfreak9000.space.tileworld.Background;
+import de.pcfreak9000.space.tileworld.ColumnData;
+import de.pcfreak9000.space.tileworld.GenerationBuffer;
 import de.pcfreak9000.space.tileworld.Region;
+import de.pcfreak9000.space.tileworld.StagedRegionGenerator;
+import de.pcfreak9000.space.tileworld.StagedRegionGenerator.Phase;
 import de.pcfreak9000.space.tileworld.TileWorld;
 import de.pcfreak9000.space.tileworld.World;
 import de.pcfreak9000.space.tileworld.WorldGenerator;
 import de.pcfreak9000.space.tileworld.tile.Tile;
 import de.pcfreak9000.space.tileworld.tile.TileEntity;
 import de.pcfreak9000.space.tileworld.tile.TileState;
+import de.pcfreak9000.space.util.noise.FractalNoise;
+import de.pcfreak9000.space.util.noise.Noise2D;
+import de.pcfreak9000.space.util.noise.SimplexNoise;
+import de.pcfreak9000.space.util.noise.ValueNoise;
 
 @Mod(id = "SpaceExplorer2D-Dummy-Mod", name = "Kek", version = { 0, 0, 1 })
 public class DMod {
@@ -22,6 +31,9 @@ public class DMod {
     @Instance
     private static DMod instance;
     
+    private static final int BIOME_TEMPERATE = 0;
+    private static final int BIOME_COLD = 1;
+    
     @EventSubscription
     public void preInit(final ModLoaderEvents.ModPreInitEvent pre) {
         System.out.println(pre.getClass());
@@ -31,31 +43,53 @@ public class DMod {
     public void init(final ModLoaderEvents.ModInitEvent init) {
         Tile tstoneTile = new Tile();
         tstoneTile.setTexture("stone.png");
+        tstoneTile.setOpaque(true);
         GameRegistry.TILE_REGISTRY.register("stone", tstoneTile);
         
         Tile ironTile = new Tile();
         ironTile.setTexture("ore_iron.png");
+        ironTile.setOpaque(true);
         ironTile.setLightColor(new Color(Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE));
         GameRegistry.TILE_REGISTRY.register("ore_iron", ironTile);
         
         Tile bottom = new Tile();
         bottom.setCanBreak(false);
         bottom.setTexture("stone_dark.png");
+        bottom.setOpaque(true);
         GameRegistry.TILE_REGISTRY.register("bottom", bottom);
         
-        Tile grasstile = new Tile();
+        Tile dirttile = new Tile();
+        Tile grasstile = new Tile() {
+            @Override
+            public boolean hasRandomTick() {
+                return true;
+            }
+            
+            //spreads onto dirt next to it that has nothing on top
+            @Override
+            public void randomTick(TileWorld world, TileState myState, Random random) {
+                int tx = myState.getGlobalTileX() + random.nextInt(3) - 1;
+                int ty = myState.getGlobalTileY() + random.nextInt(3) - 1;
+                if (world.getTileIfGenerated(tx, ty) == dirttile
+                        && world.getTileIfGenerated(tx, ty + 1) == Tile.EMPTY) {
+                    world.setTile(this, tx, ty);
+                }
+            }
+        };
         grasstile.setTexture("grass.png");
         //grasstile.setFilterColor(new Color(0.3f, 0.3f, 0.3f));
         GameRegistry.TILE_REGISTRY.register("grass", grasstile);
         
-        Tile dirttile = new Tile();
         dirttile.setTexture("dirt.png");
+        dirttile.setOpaque(true);
         dirttile.setBouncyness(1);
+        dirttile.setAffectedByGravity(true);
         //dirttile.setFilterColor(new Color(1, 0, 0, 1));
         GameRegistry.TILE_REGISTRY.register("dirt", dirttile);
         
         Tile torch = new Tile();
         torch.setLightColor(new Color(Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE));
+        GameRegistry.TILE_REGISTRY.register("torch", torch);
         
         Tile laser = new Tile() {
             @Override
@@ -69,6 +103,7 @@ public class DMod {
             }
         };
         laser.setTexture("dirt.png");
+        laser.setOpaque(true);
         laser.color().set(1, 0, 0);
         laser.setLightColor(new Color(5, 0, 0));
         GameRegistry.TILE_REGISTRY.register("laser", laser);
@@ -85,48 +120,130 @@ public class DMod {
             
             @Override
             public World generateWorld(long seed) {
-                return new World(new TileWorld(400, 400, (chunk, tileWorld) -> {
+                Noise2D surface = new FractalNoise(new SimplexNoise(seed), 4, 0.01);
+                Noise2D caves = new FractalNoise(new SimplexNoise(seed + 1), 3, 0.03);
+                Noise2D ores = new ValueNoise(seed + 2);
+                Noise2D temperature = new FractalNoise(new SimplexNoise(seed + 3), 2, 0.002);
+                StagedRegionGenerator generator = new StagedRegionGenerator(seed);
+                generator.setColumnProvider((column, tileWorld) -> {
+                    for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                        int x = column.getGlobalTileX() + i;
+                        float temp = (float) temperature.sample(x);
+                        column.setSurfaceHeight(x, 75 + (int) Math.round(13 * (surface.sample(x) + 1)));
+                        column.setTemperature(x, temp);
+                        column.setBiome(x, temp < -0.3f ? BIOME_COLD : BIOME_TEMPERATE);
+                    }
+                });
+                generator.addStage(Phase.TERRAIN, (tileWorld, buffer, random) -> {
+                    int bottomId = buffer.idOf(bottom);
+                    int grassId = buffer.idOf(grasstile);
+                    int dirtId = buffer.idOf(dirttile);
+                    int stoneId = buffer.idOf(tstoneTile);
+                    ColumnData column = tileWorld.getColumn(Region.toGlobalRegion(buffer.getGlobalTileX()));
                     for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                        int x = buffer.getGlobalTileX() + i;
+                        if (x >= tileWorld.getWorldWidth()) {
+                            break;
+                        }
+                        int value = column.getSurfaceHeight(x);
+                        int top = column.getBiome(x) == BIOME_COLD ? dirtId : grassId;
                         for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
-                            if (!tileWorld.inBounds(i + chunk.getGlobalTileX(), j + chunk.getGlobalTileY())) {
-                                continue;
+                            int y = buffer.getGlobalTileY() + j;
+                            if (y >= tileWorld.getWorldHeight() || y > value) {
+                                break;
                             }
-                            int value = 75 + Mathf.round(6 * Mathf.abs(Mathf.sin(0.2f * (i + chunk.getGlobalTileX())))
-                                    + 20 * Mathf.abs(Mathf.sin(0.05f * (i + chunk.getGlobalTileX()))));
-                            if (j + chunk.getGlobalTileY() > value) {
-                                continue;
-                            }
-                            Tile t;
-                            if (j + chunk.getGlobalTileY() == 0) {
-                                t = GameRegistry.TILE_REGISTRY.get("bottom");
+                            int t;
+                            if (y == 0) {
+                                t = bottomId;
+                            } else if (y == value) {
+                                t = top;
+                            } else if (y >= value - 3) {
+                                t = dirtId;
                             } else {
-                                if (j + chunk.getGlobalTileY() == value) {
-                                    t = GameRegistry.TILE_REGISTRY.get("grass");
-                                } else if (j + chunk.getGlobalTileY() >= value - 3) {
-                                    t = GameRegistry.TILE_REGISTRY.get("dirt");
-                                } else {
-                                    t = GameRegistry.TILE_REGISTRY.get("stone");
-                                }
+                                t = stoneId;
                             }
-                            
-                            if (t == tstoneTile) {
-                                if (Math.random() < 0.001) {
-                                    t = laser;
-                                }
-                                if(Math.random() < 0.002) {
-                                    t = torch;
+                            buffer.setTile(t, x, y);
+                            buffer.setTileBackground(t, x, y);
+                        }
+                    }
+                });
+                generator.addStage(Phase.CAVES, (tileWorld, buffer, random) -> {
+                    int stoneId = buffer.idOf(tstoneTile);
+                    forEachTile(tileWorld, buffer, (x, y) -> {
+                        if (buffer.getTileId(x, y) == stoneId && Math.abs(caves.sample(x, y)) < 0.06) {
+                            buffer.setTile(GenerationBuffer.EMPTY_ID, x, y);
+                        }
+                    });
+                });
+                generator.addStage(Phase.ORES, (tileWorld, buffer, random) -> {
+                    int stoneId = buffer.idOf(tstoneTile);
+                    int ironId = buffer.idOf(ironTile);
+                    forEachTile(tileWorld, buffer, (x, y) -> {
+                        if (buffer.getTileId(x, y) == stoneId && ores.sample(x * 0.25, y * 0.25) > 0.8) {
+                            buffer.setTile(ironId, x, y);
+                        }
+                    });
+                });
+                generator.addStage(Phase.DECORATION, (tileWorld, buffer, random) -> {
+                    int stoneId = buffer.idOf(tstoneTile);
+                    int laserId = buffer.idOf(laser);
+                    int torchId = buffer.idOf(torch);
+                    forEachTile(tileWorld, buffer, (x, y) -> {
+                        if (buffer.getTileId(x, y) == stoneId) {
+                            double r = random.nextDouble();
+                            if (r < 0.002) {
+                                buffer.setTile(torchId, x, y);
+                            } else if (r < 0.003) {
+                                buffer.setTile(laserId, x, y);
+                            }
+                        }
+                    });
+                });
+                //boulders on the surface, these may reach into the neighbouring regions
+                generator.addStage(Phase.DECORATION, (tileWorld, buffer, random) -> {
+                    int stoneId = buffer.idOf(tstoneTile);
+                    ColumnData column = tileWorld.getColumn(Region.toGlobalRegion(buffer.getGlobalTileX()));
+                    for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                        int x = buffer.getGlobalTileX() + i;
+                        if (x >= tileWorld.getWorldWidth()) {
+                            break;
+                        }
+                        int surfaceY = column.getSurfaceHeight(x);
+                        if (!buffer.contains(x, surfaceY) || random.nextDouble() >= 0.01) {
+                            continue;
+                        }
+                        int radius = 2 + random.nextInt(3);
+                        for (int dx = -radius; dx <= radius; dx++) {
+                            for (int dy = -radius; dy <= radius; dy++) {
+                                if (dx * dx + dy * dy <= radius * radius) {
+                                    buffer.setTile(stoneId, x + dx, surfaceY + dy);
                                 }
                             }
-                            chunk.setTile(t, i + chunk.getGlobalTileX(), j + chunk.getGlobalTileY());
-                            chunk.setTileBackground(t, i + chunk.getGlobalTileX(), j + chunk.getGlobalTileY());
                         }
                     }
-                    //chunk.requestSunlightComputation();
-                }), GameRegistry.BACKGROUND_REGISTRY.get("stars"));
+                });
+                return new World(new TileWorld(400, 400, generator), GameRegistry.BACKGROUND_REGISTRY.get("stars"));
             }
         });
     }
     
+    private static void forEachTile(TileWorld tileWorld, GenerationBuffer buffer, IntBiConsumer consumer) {
+        for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+            for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                int x = buffer.getGlobalTileX() + i;
+                int y = buffer.getGlobalTileY() + j;
+                if (tileWorld.inBounds(x, y)) {
+                    consumer.accept(x, y);
+                }
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private static interface IntBiConsumer {
+        void accept(int x, int y);
+    }
+    
     @EventSubscription
     public void postInit(final ModLoaderEvents.ModPostInitEvent post) {
         
@@ -1,15 +1,14 @@
 package dmod;
 
 import de.omnikryptec.util.math.Mathf;
-import de.omnikryptec.util.updater.Time;
 import de.pcfreak9000.space.tileworld.Region;
 import de.pcfreak9000.space.tileworld.TileWorld;
-import de.pcfreak9000.space.tileworld.tile.Tickable;
+import de.pcfreak9000.space.tileworld.tile.ScheduledTickable;
 import de.pcfreak9000.space.tileworld.tile.Tile;
 import de.pcfreak9000.space.tileworld.tile.TileEntity;
 import de.pcfreak9000.space.tileworld.tile.TileState;
 
-public class LaserTileEntity extends TileEntity implements Tickable {
+public class LaserTileEntity extends TileEntity implements ScheduledTickable {
     
     private float progress = 0;
     
@@ -22,8 +21,8 @@ public class LaserTileEntity extends TileEntity implements Tickable {
     }
     
     @Override
-    public void tick(Time time) {
-        progress += time.deltaf;
+    public float scheduledTick(float elapsed) {
+        progress += elapsed;
         if (myState.getGlobalTileY() - progress >= 0 && progress >= 1) {
             Region tw = world.getRegion(Region.toGlobalRegion(myState.getGlobalTileX()),
                     Region.toGlobalRegion(myState.getGlobalTileY() - Mathf.floori(progress)));
@@ -33,6 +32,7 @@ public class LaserTileEntity extends TileEntity implements Tickable {
         } else if (myState.getGlobalTileY() - progress < 0) {
             progress = 0;
         }
-        
+        //wake up when the next tile is reached
+        return Mathf.floori(progress) + 1 - progress;
     }
 }
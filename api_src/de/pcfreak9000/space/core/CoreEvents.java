@@ -3,6 +3,7 @@ package de.pcfreak9000.space.core;
 import de.omnikryptec.event.Event;
 import de.omnikryptec.resource.helper.SoundHelper;
 import de.omnikryptec.resource.helper.TextureHelper;
+import de.omnikryptec.resource.loadervpc.ResourceProvider;
 
 public class CoreEvents {
     
@@ -13,10 +14,12 @@ public class CoreEvents {
     public static class AssignResourcesEvent extends Event {
         public final TextureHelper textures;
         public final SoundHelper sounds;
+        public final ResourceProvider resources;
         
-        public AssignResourcesEvent(TextureHelper textures, SoundHelper sounds) {
+        public AssignResourcesEvent(TextureHelper textures, SoundHelper sounds, ResourceProvider resources) {
             this.textures = textures;
             this.sounds = sounds;
+            this.resources = resources;
         }
     }
 }
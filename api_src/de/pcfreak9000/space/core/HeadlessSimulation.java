@@ -0,0 +1,199 @@
+package de.pcfreak9000.space.core;
+
+import de.codemakers.io.file.AdvancedFile;
+import de.omnikryptec.core.update.UpdateableFactory;
+import de.omnikryptec.ecs.Entity;
+import de.omnikryptec.ecs.IECSManager;
+import de.omnikryptec.ecs.component.ComponentType;
+import de.omnikryptec.util.Logger;
+import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.mod.ModLoader;
+import de.pcfreak9000.space.tileworld.World;
+import de.pcfreak9000.space.tileworld.WorldEvents;
+import de.pcfreak9000.space.tileworld.WorldGenerator;
+import de.pcfreak9000.space.tileworld.WorldLoader;
+import de.pcfreak9000.space.tileworld.WorldLoadingFence;
+import de.pcfreak9000.space.tileworld.WorldManager;
+import de.pcfreak9000.space.tileworld.ecs.PhysicsComponent;
+import de.pcfreak9000.space.tileworld.ecs.PhysicsSystem;
+import de.pcfreak9000.space.tileworld.ecs.PlayerScript;
+import de.pcfreak9000.space.tileworld.ecs.ScriptedPlayerComponent;
+import de.pcfreak9000.space.tileworld.ecs.ScriptedPlayerSystem;
+import de.pcfreak9000.space.tileworld.ecs.TickRegionSystem;
+import de.pcfreak9000.space.tileworld.ecs.TransformComponent;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.util.metrics.GaugeGroup;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * Runs the world simulation without a window, OpenGL context or render
+ * systems: region loading, region ticks and physics advance with a fixed
+ * delta, as fast as possible. The player is driven by a {@link PlayerScript}.
+ * <br>
+ * Usage: {@code <generator> <seed> [ticks]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class HeadlessSimulation {
+    
+    private static final Logger LOGGER = Logger.getLogger(HeadlessSimulation.class);
+    
+    public static final float DEFAULT_DELTA = 1 / 60f;
+    
+    /**
+     * The stages of an update, in the order of the {@link WorldManager}'s
+     * game logic container.
+     */
+    public static final String[] STAGES = { "loadChunks", "ecs" };
+    
+    private final IECSManager ecsManager;
+    private final WorldLoader worldLoader;
+    private final GaugeGroup gauges = new GaugeGroup();
+    
+    private World currentWorld;
+    private Entity player;
+    
+    private final long[] stageNanos = new long[STAGES.length];
+    
+    private long ticks = 0;
+    private double time = 0;
+    
+    public HeadlessSimulation() {
+        this.ecsManager = UpdateableFactory.createDefaultIECSManager();
+        this.ecsManager.addSystem(new ScriptedPlayerSystem());
+        TickRegionSystem tickRegionSystem = new TickRegionSystem();
+        this.ecsManager.addSystem(tickRegionSystem);
+        PhysicsSystem physicsSystem = new PhysicsSystem();
+        this.ecsManager.addSystem(physicsSystem);
+        this.worldLoader = new WorldLoader(this.ecsManager, null);
+        this.worldLoader.addGauges(this.gauges);
+        tickRegionSystem.addGauges(this.gauges);
+        physicsSystem.addGauges(this.gauges);
+    }
+    
+    /**
+     * Removes the gauges of this simulation from the {@link Metrics}. The
+     * simulation should not be used afterwards.
+     */
+    public void close() {
+        this.gauges.remove();
+    }
+    
+    /**
+     * Loads the mods from the usual mods folder, so their tiles and world
+     * generators are registered.
+     */
+    public static void loadMods() {
+        new ModLoader().load(new AdvancedFile(Space.FOLDER, Space.MODS));
+    }
+    
+    /**
+     * Puts a scripted player into a world and loads the regions around it.
+     *
+     * @param world  the world
+     * @param x      world x of the player
+     * @param y      world y of the player
+     * @param script drives the player
+     */
+    public void visit(World world, float x, float y, PlayerScript script) {
+        if (this.player != null) {
+            this.ecsManager.removeEntity(this.player);
+        }
+        this.player = createPlayerEntity(script);
+        TransformComponent tc = this.player
+                .getComponent(ComponentType.of(TransformComponent.class));
+        tc.transform.localspaceWrite().setTranslation(x, y);
+        this.worldLoader.setWorldUpdateFence(new WorldLoadingFence(tc.transform));
+        this.ecsManager.addEntity(this.player);
+        Space.BUS.post(new WorldEvents.SetWorldEvent(null, this.currentWorld, world));
+        this.currentWorld = world;
+        this.worldLoader.setWorld(world);
+    }
+    
+    /**
+     * Advances the simulation by one update.
+     *
+     * @param delta the simulated time of this update in seconds
+     */
+    public void tick(float delta) {
+        this.ticks++;
+        this.time += delta;
+        Time t = new Time(this.ticks, this.time, delta);
+        long start = System.nanoTime();
+        this.worldLoader.loadChunks(t);
+        long loaded = System.nanoTime();
+        this.ecsManager.update(t);
+        this.stageNanos[0] = loaded - start;
+        this.stageNanos[1] = System.nanoTime() - loaded;
+    }
+    
+    public void run(long ticks, float delta) {
+        for (long i = 0; i < ticks; i++) {
+            tick(delta);
+        }
+    }
+    
+    /**
+     * @param stage index into {@link #STAGES}
+     * @return how long that stage took in the last update, in nanoseconds
+     */
+    public long getStageNanos(int stage) {
+        return this.stageNanos[stage];
+    }
+    
+    public long getTicks() {
+        return this.ticks;
+    }
+    
+    public double getTime() {
+        return this.time;
+    }
+    
+    public Entity getPlayer() {
+        return this.player;
+    }
+    
+    public WorldLoader getLoader() {
+        return this.worldLoader;
+    }
+    
+    public IECSManager getECSManager() {
+        return this.ecsManager;
+    }
+    
+    private Entity createPlayerEntity(PlayerScript script) {
+        Entity e = new Entity();
+        PhysicsComponent pc = new PhysicsComponent();
+        //same body as the real player, see Player
+        pc.w = Tile.TILE_SIZE * 2;
+        pc.h = Tile.TILE_SIZE * 4 * 0.95f;
+        e.addComponent(pc);
+        e.addComponent(new TransformComponent());
+        e.addComponent(new ScriptedPlayerComponent(script));
+        return e;
+    }
+    
+    public static void main(String[] args) {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: <generator> <seed> [ticks]");
+            System.exit(1);
+        }
+        loadMods();
+        WorldGenerator generator = GameRegistry.GENERATOR_REGISTRY.get(args[0]);
+        World world = generator.generateWorld(Long.parseLong(args[1]));
+        long ticks = args.length > 2 ? Long.parseLong(args[2]) : 3600;
+        HeadlessSimulation simulation = new HeadlessSimulation();
+        float x = world.getTileWorld().getWorldWidth() / 2 * Tile.TILE_SIZE;
+        float y = world.getTileWorld().getWorldHeight() * Tile.TILE_SIZE;
+        simulation.visit(world, x, y, PlayerScript.walk(100));
+        long start = System.nanoTime();
+        simulation.run(ticks, DEFAULT_DELTA);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LOGGER.infof("Simulated %d ticks (%.1f s game time) in %.2f s, %.0f ticks/s", ticks, simulation.getTime(),
+                seconds, ticks / seconds);
+        simulation.close();
+        System.exit(0);
+    }
+}
@@ -6,7 +6,8 @@ import de.omnikryptec.util.settings.keys.KeysAndButtons;
 
 public enum Keys {
     
-    FORWARD, BACKWARD, LEFT, RIGHT, UP, DOWN, DESTROY, BUILD, EXPLODE_DEBUG, SHOOT;
+    FORWARD, BACKWARD, LEFT, RIGHT, UP, DOWN, DESTROY, BUILD, EXPLODE_DEBUG, SHOOT, MEMORY_DEBUG, ZOOM_IN,
+    ZOOM_OUT;
     
     public final String id = toString();
     
@@ -25,5 +26,8 @@ public enum Keys {
         ks.addMouseKey(BUILD.id, KeysAndButtons.OKE_MOUSE_BUTTON_RIGHT);
         ks.addMouseKey(EXPLODE_DEBUG.id, KeysAndButtons.OKE_MOUSE_BUTTON_MIDDLE);
         ks.addKey(SHOOT.id, KeysAndButtons.OKE_KEY_F);
+        ks.addKey(MEMORY_DEBUG.id, KeysAndButtons.OKE_KEY_F3);
+        ks.addKey(ZOOM_IN.id, KeysAndButtons.OKE_KEY_E);
+        ks.addKey(ZOOM_OUT.id, KeysAndButtons.OKE_KEY_Q);
     }
 }
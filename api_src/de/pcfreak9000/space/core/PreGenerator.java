@@ -0,0 +1,55 @@
+package de.pcfreak9000.space.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import de.codemakers.io.file.AdvancedFile;
+import de.omnikryptec.util.Logger;
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.mod.ModLoader;
+import de.pcfreak9000.space.tileworld.RegionStore;
+import de.pcfreak9000.space.tileworld.TileWorld;
+import de.pcfreak9000.space.tileworld.WorldGenerator;
+import de.pcfreak9000.space.tileworld.WorldPreGenerator;
+
+/**
+ * Headless entry point that pre-generates a world into a region directory.
+ * Loads the mods like the game does, but never opens a window. Without a
+ * directory, the world is written to {@link Space#getRegionDirectory(String, long)},
+ * where the game picks it up.<br>
+ * Usage: {@code <generator> <seed> [directory [threads] [minRx minRy maxRx maxRy]]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class PreGenerator {
+    
+    private static final Logger LOGGER = Logger.getLogger(PreGenerator.class);
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4 && args.length < 7 || args.length > 8) {
+            System.err.println("Usage: <generator> <seed> [directory [threads] [minRx minRy maxRx maxRy]]");
+            System.exit(1);
+        }
+        new ModLoader().load(new AdvancedFile(Space.FOLDER, Space.MODS));
+        WorldGenerator generator = GameRegistry.GENERATOR_REGISTRY.get(args[0]);
+        long seed = Long.parseLong(args[1]);
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Space.getRegionDirectory(args[0], seed);
+        TileWorld tileWorld = generator.generateWorld(seed).getTileWorld();
+        WorldPreGenerator preGenerator = new WorldPreGenerator(tileWorld, new RegionStore(directory));
+        //the thread count is optional, also in front of the bounds
+        if (args.length == 4 || args.length == 8) {
+            preGenerator.setThreads(Integer.parseInt(args[3]));
+        }
+        LOGGER.infof("Pre-generating %s with seed %d into %s", args[0], seed, directory);
+        if (args.length >= 7) {
+            int b = args.length - 4;
+            preGenerator.generate(Integer.parseInt(args[b]), Integer.parseInt(args[b + 1]),
+                    Integer.parseInt(args[b + 2]), Integer.parseInt(args[b + 3]));
+        } else {
+            preGenerator.generateAll();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,287 @@
+package de.pcfreak9000.space.core;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records one row per tick of a {@link HeadlessSimulation}: the time of every
+ * update stage, heap usage, garbage collections and loaded regions. Rows are
+ * kept in preallocated arrays, so recording itself does not allocate and does
+ * not show up in the heap numbers.<br>
+ * The percentile summary skips the first {@link #WARMUP_FRACTION} of the ticks,
+ * so JIT compilation and the initial region loading do not dominate it.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class SoakRecorder {
+    
+    public static final double WARMUP_FRACTION = 0.1;
+    
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+    
+    private final String[] stages;
+    private final long[][] stageNanos;
+    private final long[] heapUsed;
+    private final long[] gcCount;
+    private final long[] gcMillis;
+    private final int[] loadedRegions;
+    private int size = 0;
+    
+    private final Runtime runtime = Runtime.getRuntime();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    
+    public SoakRecorder(String[] stages, int capacity) {
+        this.stages = stages;
+        this.stageNanos = new long[stages.length][capacity];
+        this.heapUsed = new long[capacity];
+        this.gcCount = new long[capacity];
+        this.gcMillis = new long[capacity];
+        this.loadedRegions = new int[capacity];
+    }
+    
+    /**
+     * Records the last update of the simulation.
+     *
+     * @param simulation the simulation that just ticked
+     */
+    public void record(HeadlessSimulation simulation) {
+        if (this.size == this.heapUsed.length) {
+            throw new IllegalStateException("Recorder is full");
+        }
+        for (int s = 0; s < this.stages.length; s++) {
+            this.stageNanos[s][this.size] = simulation.getStageNanos(s);
+        }
+        this.heapUsed[this.size] = this.runtime.totalMemory() - this.runtime.freeMemory();
+        long count = 0;
+        long millis = 0;
+        for (int i = 0; i < this.collectors.size(); i++) {
+            GarbageCollectorMXBean gc = this.collectors.get(i);
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        this.gcCount[this.size] = count;
+        this.gcMillis[this.size] = millis;
+        this.loadedRegions[this.size] = simulation.getLoader().getLoadedRegionCount();
+        this.size++;
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    /**
+     * Writes all rows as CSV, one tick per line. Times are in nanoseconds,
+     * memory in bytes, GC counts and times are cumulative.
+     *
+     * @param file the file to write
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.print("tick");
+            for (String stage : this.stages) {
+                out.print(',');
+                out.print(stage);
+                out.print("_ns");
+            }
+            out.println(",total_ns,heap_used,gc_count,gc_ms,loaded_regions");
+            for (int i = 0; i < this.size; i++) {
+                out.print(i);
+                long total = 0;
+                for (int s = 0; s < this.stages.length; s++) {
+                    out.print(',');
+                    out.print(this.stageNanos[s][i]);
+                    total += this.stageNanos[s][i];
+                }
+                out.print(',');
+                out.print(total);
+                out.print(',');
+                out.print(this.heapUsed[i]);
+                out.print(',');
+                out.print(this.gcCount[i]);
+                out.print(',');
+                out.print(this.gcMillis[i]);
+                out.print(',');
+                out.println(this.loadedRegions[i]);
+            }
+        }
+    }
+    
+    /**
+     * Writes the summary as JSON. The info entries describe the run, e.g. the
+     * build and the scenario, so summaries of different builds can be told
+     * apart and compared.
+     *
+     * @param file the file to write
+     * @param info additional string entries of the summary
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Path file, Map<String, String> info) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(toJson(info));
+        }
+    }
+    
+    public String toJson(Map<String, String> info) {
+        StringBuilder b = new StringBuilder();
+        b.append("{\n  \"info\": {");
+        boolean first = true;
+        for (Map.Entry<String, String> e : info.entrySet()) {
+            b.append(first ? "\n" : ",\n");
+            first = false;
+            b.append("    ").append(quote(e.getKey())).append(": ").append(quote(e.getValue()));
+        }
+        b.append("\n  },\n");
+        b.append("  \"ticks\": ").append(this.size).append(",\n");
+        b.append("  \"warmupTicks\": ").append(warmupTicks()).append(",\n");
+        b.append("  \"stages\": {\n");
+        for (int s = 0; s < this.stages.length; s++) {
+            b.append("    ").append(quote(this.stages[s])).append(": ");
+            appendTimings(b, this.stageNanos[s]);
+            b.append(",\n");
+        }
+        b.append("    \"total\": ");
+        appendTimings(b, totals());
+        b.append("\n  },\n");
+        int start = warmupTicks();
+        b.append("  \"heap\": {\"min\": ").append(min(this.heapUsed, start)).append(", \"max\": ")
+                .append(max(this.heapUsed, start)).append(", \"end\": ").append(last(this.heapUsed)).append("},\n");
+        b.append("  \"gc\": {\"count\": ").append(last(this.gcCount) - first(this.gcCount)).append(", \"ms\": ")
+                .append(last(this.gcMillis) - first(this.gcMillis)).append("},\n");
+        int maxRegions = 0;
+        for (int i = 0; i < this.size; i++) {
+            maxRegions = Math.max(maxRegions, this.loadedRegions[i]);
+        }
+        b.append("  \"loadedRegions\": {\"max\": ").append(maxRegions).append(", \"end\": ")
+                .append(this.size == 0 ? 0 : this.loadedRegions[this.size - 1]).append("}\n");
+        b.append("}\n");
+        return b.toString();
+    }
+    
+    /**
+     * A short human readable summary of the total tick times.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        long[] sorted = sortedAfterWarmup(totals());
+        StringBuilder b = new StringBuilder();
+        b.append(String.format(Locale.ROOT, "%d ticks, mean %.3f ms", this.size, mean(sorted) / 1e6));
+        for (double p : PERCENTILES) {
+            b.append(String.format(Locale.ROOT, ", p%s %.3f ms", format(p).replace('_', '.'),
+                    percentile(sorted, p) / 1e6));
+        }
+        b.append(String.format(Locale.ROOT, ", max %.3f ms, heap max %d MiB", percentile(sorted, 100) / 1e6,
+                max(this.heapUsed, warmupTicks()) >> 20));
+        return b.toString();
+    }
+    
+    /**
+     * Nearest-rank percentile.
+     *
+     * @param sorted the ascending values
+     * @param p      the percentile, 0 to 100
+     * @return the value, 0 if there are none
+     */
+    public static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+    
+    private void appendTimings(StringBuilder b, long[] values) {
+        long[] sorted = sortedAfterWarmup(values);
+        b.append("{\"mean\": ").append(String.format(Locale.ROOT, "%.1f", mean(sorted)));
+        for (double p : PERCENTILES) {
+            b.append(", \"p").append(format(p)).append("\": ").append(percentile(sorted, p));
+        }
+        b.append(", \"max\": ").append(percentile(sorted, 100)).append('}');
+    }
+    
+    private long[] totals() {
+        long[] totals = new long[this.size];
+        for (long[] stage : this.stageNanos) {
+            for (int i = 0; i < this.size; i++) {
+                totals[i] += stage[i];
+            }
+        }
+        return totals;
+    }
+    
+    private int warmupTicks() {
+        return (int) (this.size * WARMUP_FRACTION);
+    }
+    
+    private long[] sortedAfterWarmup(long[] values) {
+        long[] sorted = Arrays.copyOfRange(values, warmupTicks(), this.size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+    
+    private long first(long[] values) {
+        return this.size == 0 ? 0 : values[0];
+    }
+    
+    private long last(long[] values) {
+        return this.size == 0 ? 0 : values[this.size - 1];
+    }
+    
+    private long min(long[] values, int start) {
+        long min = this.size > start ? Long.MAX_VALUE : 0;
+        for (int i = start; i < this.size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+    
+    private long max(long[] values, int start) {
+        long max = 0;
+        for (int i = start; i < this.size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+    
+    private static double mean(long[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (long v : values) {
+            sum += v;
+        }
+        return sum / values.length;
+    }
+    
+    private static String format(double p) {
+        return p == (long) p ? Long.toString((long) p) : Double.toString(p).replace('.', '_');
+    }
+    
+    private static String quote(String s) {
+        StringBuilder b = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                b.append('\\').append(c);
+            } else if (c < 0x20) {
+                b.append(String.format("\\u%04x", (int) c));
+            } else {
+                b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+}
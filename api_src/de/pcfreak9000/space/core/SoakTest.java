@@ -0,0 +1,165 @@
+package de.pcfreak9000.space.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import de.omnikryptec.ecs.IECSManager;
+import de.omnikryptec.util.Logger;
+import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.tileworld.TileWorld;
+import de.pcfreak9000.space.tileworld.World;
+import de.pcfreak9000.space.tileworld.WorldGenerator;
+import de.pcfreak9000.space.tileworld.ecs.PhysicsComponent;
+import de.pcfreak9000.space.tileworld.ecs.PlayerActions;
+import de.pcfreak9000.space.tileworld.ecs.PlayerScript;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * Headless soak test: plays a scripted session for a number of simulated
+ * minutes and records every tick with a {@link SoakRecorder}. The player walks
+ * across the world, digs, builds, detonates, shoots and pours fluid, all
+ * driven by a seeded random, so two runs with the same arguments play the same
+ * session and their summaries can be compared across builds.<br>
+ * Writes {@code soak.csv}, {@code soak.json} and the explored part of the world
+ * as {@code minimap.png} into the output directory and logs a snapshot of
+ * the {@link Metrics} and a memory report of the world at the end.<br>
+ * Usage: {@code <generator> <seed> <minutes> <output directory> [script seed]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class SoakTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(SoakTest.class);
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 && args.length != 5) {
+            System.err.println("Usage: <generator> <seed> <minutes> <output directory> [script seed]");
+            System.exit(1);
+        }
+        Metrics.setEnabled(true);
+        HeadlessSimulation.loadMods();
+        WorldGenerator generator = GameRegistry.GENERATOR_REGISTRY.get(args[0]);
+        long seed = Long.parseLong(args[1]);
+        double minutes = Double.parseDouble(args[2]);
+        Path output = Paths.get(args[3]);
+        long scriptSeed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        World world = generator.generateWorld(seed);
+        TileWorld tileWorld = world.getTileWorld();
+        int ticks = (int) Math.round(minutes * 60 / HeadlessSimulation.DEFAULT_DELTA);
+        HeadlessSimulation simulation = new HeadlessSimulation();
+        simulation.visit(world, tileWorld.getWorldWidth() / 2 * Tile.TILE_SIZE,
+                tileWorld.getWorldHeight() * Tile.TILE_SIZE, new SoakScript(scriptSeed));
+        SoakRecorder recorder = new SoakRecorder(HeadlessSimulation.STAGES, ticks);
+        LOGGER.infof("Soak test: %s with seed %d, %.1f minutes (%d ticks)", args[0], seed, minutes, ticks);
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            simulation.tick(HeadlessSimulation.DEFAULT_DELTA);
+            recorder.record(simulation);
+            if ((i + 1) % (ticks / 10 + 1) == 0) {
+                LOGGER.infof("%d/%d ticks", i + 1, ticks);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Files.createDirectories(output);
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("version", Space.VERSION);
+        info.put("generator", args[0]);
+        info.put("seed", Long.toString(seed));
+        info.put("scriptSeed", Long.toString(scriptSeed));
+        info.put("minutes", args[2]);
+        info.put("wallSeconds", String.format(Locale.ROOT, "%.2f", seconds));
+        info.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        info.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        info.put("processors", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        info.put("maxHeap", Long.toString(Runtime.getRuntime().maxMemory()));
+        recorder.writeCsv(output.resolve("soak.csv"));
+        recorder.writeJson(output.resolve("soak.json"), info);
+        try (OutputStream out = Files.newOutputStream(output.resolve("minimap.png"))) {
+            tileWorld.getMinimap().writePng(out);
+        }
+        LOGGER.info(recorder.summary());
+        LOGGER.info(Metrics.snapshot().toString());
+        LOGGER.info(tileWorld.memoryReport(10));
+        LOGGER.info(tileWorld.getTickBudget().report(10));
+        simulation.close();
+        System.exit(0);
+    }
+    
+    /**
+     * Walks back and forth through the world, tunnels through whatever is in
+     * the way and keeps the world busy with edits and projectiles.
+     */
+    public static class SoakScript implements PlayerScript {
+        
+        private static final float WALK_SPEED = 100;
+        private static final float TURN_SECONDS = 30;
+        private static final float DIG_SECONDS = 0.25f;
+        private static final float BUILD_SECONDS = 1;
+        private static final float EXPLODE_SECONDS = 5;
+        private static final float SHOOT_SECONDS = 0.5f;
+        private static final float POUR_SECONDS = 2;
+        
+        private final Random random;
+        
+        private int direction = 1;
+        private float turn, dig, build, explode, shoot, pour;
+        
+        public SoakScript(long seed) {
+            this.random = new Random(seed);
+        }
+        
+        @Override
+        public void update(IECSManager manager, PlayerActions actions, PhysicsComponent body, Time time) {
+            TileWorld world = actions.getWorld();
+            int tx = Tile.toGlobalTile(body.x + body.w / 2);
+            int ty = Tile.toGlobalTile(body.y);
+            float margin = 4 * Tile.TILE_SIZE;
+            this.turn += time.deltaf;
+            if (this.turn >= TURN_SECONDS || (this.direction < 0 && body.x < margin)
+                    || (this.direction > 0 && body.x + body.w > world.getWorldWidth() * Tile.TILE_SIZE - margin)) {
+                this.turn = 0;
+                this.direction = -this.direction;
+            }
+            body.velocity.x = this.direction * WALK_SPEED;
+            if (body.onGround && this.random.nextInt(60) == 0) {
+                body.velocity.y = WALK_SPEED * 2;
+            }
+            this.dig += time.deltaf;
+            while (this.dig >= DIG_SECONDS) {
+                this.dig -= DIG_SECONDS;
+                actions.destroy(tx + this.direction * 2, ty + this.random.nextInt(4));
+            }
+            this.build += time.deltaf;
+            while (this.build >= BUILD_SECONDS) {
+                this.build -= BUILD_SECONDS;
+                actions.build(tx - this.direction * 3, ty + this.random.nextInt(3));
+            }
+            this.explode += time.deltaf;
+            while (this.explode >= EXPLODE_SECONDS) {
+                this.explode -= EXPLODE_SECONDS;
+                actions.explode(tx + this.random.nextInt(21) - 10, ty + this.random.nextInt(21) - 10, 3);
+            }
+            this.shoot += time.deltaf;
+            while (this.shoot >= SHOOT_SECONDS) {
+                this.shoot -= SHOOT_SECONDS;
+                double angle = this.random.nextDouble() * Math.PI * 2;
+                actions.shoot(manager, body, (float) Math.cos(angle), (float) Math.sin(angle));
+            }
+            this.pour += time.deltaf;
+            while (this.pour >= POUR_SECONDS) {
+                this.pour -= POUR_SECONDS;
+                actions.pour(tx, ty + 2);
+            }
+        }
+    }
+}
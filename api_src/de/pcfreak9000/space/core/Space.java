@@ -1,5 +1,7 @@
 package de.pcfreak9000.space.core;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Random;
 
@@ -12,7 +14,6 @@ import de.omnikryptec.libapi.exposed.LibAPIManager.LibSetting;
 import de.omnikryptec.libapi.exposed.window.WindowSetting;
 import de.omnikryptec.util.Logger;
 import de.omnikryptec.util.math.MathUtil;
-import de.omnikryptec.util.profiling.Profiler;
 import de.omnikryptec.util.settings.IntegerKey;
 import de.omnikryptec.util.settings.KeySettings;
 import de.omnikryptec.util.settings.Settings;
@@ -21,10 +22,12 @@ import de.pcfreak9000.space.core.gui.LoadingScreenCallback;
 import de.pcfreak9000.space.core.gui.MainMenu;
 import de.pcfreak9000.space.core.registry.GameRegistry;
 import de.pcfreak9000.space.mod.ModLoader;
+import de.pcfreak9000.space.tileworld.RegionStore;
 import de.pcfreak9000.space.tileworld.World;
 import de.pcfreak9000.space.tileworld.WorldGenerator;
 import de.pcfreak9000.space.tileworld.WorldGenerator.GeneratorCapabilitiesBase;
 import de.pcfreak9000.space.tileworld.WorldManager;
+import de.pcfreak9000.space.util.metrics.Metrics;
 
 /**
  * The main class. General settings and ressource/mod loading.
@@ -41,6 +44,7 @@ public class Space extends Omnikryptec {
     public static final AdvancedFile FOLDER = new AdvancedFile(OSUtil.getAppDataSubDirectory("." + NAME));
     public static final String RESOURCEPACKS = "resourcepacks";
     public static final String MODS = "mods";
+    public static final String REGIONS = "regions";
     public static final double ASPECT_RATIO = 16 / 9.0;
     
     private static final AdvancedFile DEFAULT_RES_LOC = new AdvancedFile("intern:/de/pcfreak9000/space/resources/");
@@ -56,6 +60,18 @@ public class Space extends Omnikryptec {
         System.exit(0);
     }
     
+    /**
+     * The directory {@link PreGenerator} writes the regions of a world to by
+     * default. The game loads them from there instead of generating them.
+     *
+     * @param generator the registered name of the generator
+     * @param seed      the world seed
+     * @return the directory
+     */
+    public static Path getRegionDirectory(String generator, long seed) {
+        return new AdvancedFile(FOLDER, REGIONS).toFile().toPath().resolve(generator + "-" + seed);
+    }
+    
     public static Space getSpace() {
         return space;
     }
@@ -77,7 +93,8 @@ public class Space extends Omnikryptec {
         windowSettings.set(WindowSetting.Name, NAME + " " + VERSION);
         libSettings.set(LibSetting.LOGGING_MIN, Logger.LogType.Debug);
         Keys.applyDefaultKeyConfig(keys);
-        Profiler.setEnabled(true);
+        Metrics.setEnabled(DEBUG || Boolean.getBoolean("space.metrics"));
+        Metrics.registerMBean();
     }
     
     @Override
@@ -100,8 +117,15 @@ public class Space extends Omnikryptec {
         //TESTING:
         this.worldManager = new WorldManager();
         GameInstance ins = new GameInstance(this.worldManager);
-        World testWorld = pickGenerator(
-                GameRegistry.GENERATOR_REGISTRY.filtered(GeneratorCapabilitiesBase.LVL_ENTRY)).generateWorld(0);
+        WorldGenerator generator = pickGenerator(
+                GameRegistry.GENERATOR_REGISTRY.filtered(GeneratorCapabilitiesBase.LVL_ENTRY));
+        long seed = 0;
+        World testWorld = generator.generateWorld(seed);
+        Path regions = getRegionDirectory(GameRegistry.GENERATOR_REGISTRY.getName(generator), seed);
+        if (Files.isDirectory(regions)) {
+            LOGGER.info("Loading pre-generated regions from " + regions);
+            testWorld.getTileWorld().setRegionStore(new RegionStore(regions));
+        }
         ins.visit(testWorld, 200, 2500);
         //***************
     }
@@ -113,7 +137,9 @@ public class Space extends Omnikryptec {
     
     @Override
     protected void onShutdown() {
-        System.out.println(Profiler.currentInfo());
+        if (Metrics.isEnabled()) {
+            System.out.println(Metrics.snapshot());
+        }
     }
     
     public void reloadResources() {
@@ -125,7 +151,9 @@ public class Space extends Omnikryptec {
         //loader.stageModResources(getResourceManager(), 1);
         preloadResources();
         loadResources();
-        
+        if (this.worldManager != null) {
+            this.worldManager.getLoader().resourcesReloaded();
+        }
     }
     
     private void preloadResources() {
@@ -145,7 +173,7 @@ public class Space extends Omnikryptec {
         getResourceManager().clearStaged();
         LOGGER.info("Finished resource loading!");
         LoadingScreen.LOADING_STAGE_BUS.post(new LoadingScreen.LoadingEvent("Assigning resources"));
-        BUS.post(new CoreEvents.AssignResourcesEvent(getTextures(), getSounds()));
+        BUS.post(new CoreEvents.AssignResourcesEvent(getTextures(), getSounds(), getResourceProvider()));
     }
     
     private AdvancedFile mkdirIfNonExisting(AdvancedFile file) {
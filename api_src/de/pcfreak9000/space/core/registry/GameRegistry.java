@@ -2,6 +2,7 @@ package de.pcfreak9000.space.core.registry;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 
 import de.omnikryptec.util.Logger;
 import de.pcfreak9000.space.util.RegisterSensitive;
@@ -43,6 +44,22 @@ public class GameRegistry<T> {
         return this.registered.get(name);
     }
     
+    /**
+     * The name an entry is registered with.
+     *
+     * @param data the entry
+     * @return the name
+     * @throws IllegalStateException if the entry is not registered
+     */
+    public String getName(final T data) {
+        for (Map.Entry<String, T> e : this.registered.entrySet()) {
+            if (e.getValue() == data) {
+                return e.getKey();
+            }
+        }
+        throw new IllegalStateException(data.getClass().getSimpleName() + " " + data + " is not registered!");
+    }
+    
     public boolean isRegistered(final String name) {
         return this.registered.containsKey(name);
     }
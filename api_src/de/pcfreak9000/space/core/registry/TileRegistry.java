@@ -1,19 +1,58 @@
 package de.pcfreak9000.space.core.registry;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import de.omnikryptec.event.EventSubscription;
 import de.pcfreak9000.space.core.CoreEvents;
 import de.pcfreak9000.space.core.Space;
 import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.tileworld.tile.TileAtlas;
 
 public class TileRegistry extends GameRegistry<Tile> {
 
+    private final TileAtlas atlas = new TileAtlas();
+
+    private final Map<Tile, String> names = new IdentityHashMap<>();
+
     public TileRegistry() {
         Space.BUS.register(this);
     }
 
+    @Override
+    public GameRegistry<Tile> register(final String name, final Tile data) {
+        if (isRegistered(name)) {
+            this.names.remove(this.registered.get(name));
+        }
+        this.names.put(data, name);
+        return super.register(name, data);
+    }
+
+    /**
+     * The name a tile is registered with, e.g. to persist it.
+     *
+     * @param tile the tile
+     * @return the name
+     * @throws IllegalStateException if the tile is not registered
+     */
+    @Override
+    public String getName(final Tile tile) {
+        String name = this.names.get(tile);
+        if (name == null) {
+            throw new IllegalStateException("Tile " + tile + " is not registered!");
+        }
+        return name;
+    }
+
     @EventSubscription
     public void assignTextures(CoreEvents.AssignResourcesEvent ev) {
         this.LOGGER.info("Dispatching tile textures...");
         this.registered.forEach((s, t) -> t.init(ev.textures));
+        this.LOGGER.info("Building tile atlas...");
+        this.atlas.build(this.registered.values(), ev.resources);
+    }
+
+    public TileAtlas getAtlas() {
+        return this.atlas;
     }
 }
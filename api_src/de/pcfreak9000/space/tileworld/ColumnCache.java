@@ -0,0 +1,70 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lazily computed {@link ColumnData} of all region columns of a
+ * {@link TileWorld}. Stacked regions share the column instead of computing
+ * e.g. the surface height for every tile again. Columns can be evicted at any
+ * time and are recomputed on the next request. Thread safe.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class ColumnCache {
+    
+    private final TileWorld tileWorld;
+    private final ColumnProvider provider;
+    private final AtomicReferenceArray<ColumnData> columns;
+    
+    ColumnCache(TileWorld tileWorld, ColumnProvider provider) {
+        this.tileWorld = tileWorld;
+        this.provider = provider;
+        this.columns = new AtomicReferenceArray<>(tileWorld.getRegionArrayWidth());
+    }
+    
+    public ColumnData get(int rx) {
+        ColumnData data = this.columns.get(rx);
+        if (data == null) {
+            data = new ColumnData(rx);
+            this.provider.fill(data, this.tileWorld);
+            //if another thread was faster its result is equal, so keep the cached one and use ours
+            this.columns.compareAndSet(rx, null, data);
+        }
+        return data;
+    }
+    
+    public void evict(int rx) {
+        this.columns.set(rx, null);
+    }
+    
+    /**
+     * Evicts all columns outside of a range of region columns.
+     *
+     * @param minRx smallest region x to keep, inclusive
+     * @param maxRx biggest region x to keep, inclusive
+     */
+    public void evictOutside(int minRx, int maxRx) {
+        for (int i = 0; i < this.columns.length(); i++) {
+            if (i < minRx || i > maxRx) {
+                this.columns.set(i, null);
+            }
+        }
+    }
+    
+    long estimateBytes() {
+        long column = RegionMemory.object(2 * 4 + 3 * RegionMemory.REFERENCE)
+                + 3 * RegionMemory.array(Region.REGION_TILE_SIZE, 4);
+        return RegionMemory.array(this.columns.length(), RegionMemory.REFERENCE) + getCachedCount() * column;
+    }
+    
+    public int getCachedCount() {
+        int count = 0;
+        for (int i = 0; i < this.columns.length(); i++) {
+            if (this.columns.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
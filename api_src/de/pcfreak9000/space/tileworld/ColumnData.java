@@ -0,0 +1,63 @@
+package de.pcfreak9000.space.tileworld;
+
+/**
+ * Per tile column values of one region column, i.e. of all regions with the
+ * same region x. Filled once by a {@link ColumnProvider} and shared by all
+ * regions of that column through the {@link ColumnCache} of the world.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class ColumnData {
+    
+    private final int rx;
+    private final int tx;
+    
+    private final int[] surfaceHeight;
+    private final int[] biome;
+    private final float[] temperature;
+    
+    public ColumnData(int rx) {
+        this.rx = rx;
+        this.tx = rx * Region.REGION_TILE_SIZE;
+        this.surfaceHeight = new int[Region.REGION_TILE_SIZE];
+        this.biome = new int[Region.REGION_TILE_SIZE];
+        this.temperature = new float[Region.REGION_TILE_SIZE];
+    }
+    
+    public int getGlobalRegionX() {
+        return this.rx;
+    }
+    
+    public int getGlobalTileX() {
+        return this.tx;
+    }
+    
+    /**
+     * @param gtx global tile x inside of this column
+     * @return the y of the topmost generated tile
+     */
+    public int getSurfaceHeight(int gtx) {
+        return this.surfaceHeight[gtx - this.tx];
+    }
+    
+    public void setSurfaceHeight(int gtx, int height) {
+        this.surfaceHeight[gtx - this.tx] = height;
+    }
+    
+    public int getBiome(int gtx) {
+        return this.biome[gtx - this.tx];
+    }
+    
+    public void setBiome(int gtx, int biome) {
+        this.biome[gtx - this.tx] = biome;
+    }
+    
+    public float getTemperature(int gtx) {
+        return this.temperature[gtx - this.tx];
+    }
+    
+    public void setTemperature(int gtx, float temperature) {
+        this.temperature[gtx - this.tx] = temperature;
+    }
+}
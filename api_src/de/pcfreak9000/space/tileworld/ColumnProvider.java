@@ -0,0 +1,15 @@
+package de.pcfreak9000.space.tileworld;
+
+/**
+ * Computes the {@link ColumnData} of a region column. Must be deterministic
+ * and thread safe, columns can be computed more than once and from multiple
+ * generator threads.
+ *
+ * @author pcfreak9000
+ *
+ */
+@FunctionalInterface
+public interface ColumnProvider {
+    
+    void fill(ColumnData column, TileWorld tileWorld);
+}
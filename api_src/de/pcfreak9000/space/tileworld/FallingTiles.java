@@ -0,0 +1,197 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.util.metrics.Counter;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * Lets tiles that are {@link Tile#isAffectedByGravity() affected by gravity}
+ * fall. Only the columns where the support of such a tile changed are looked
+ * at: a tile change marks its column active with the range of rows that might
+ * have to fall, if a gravity tile lost the tile below it or was placed above a
+ * tile that is not solid. Each step moves every unsupported stack of gravity
+ * tiles in the active columns down by one tile, the tile that was below the
+ * stack ends up on top of it. All moves of a step are applied as one
+ * {@link TileEdit}, so light is resolved once per touched region. The moved
+ * tiles mark their columns again, so a stack keeps falling until it lands.<br>
+ * At most {@link #getMaxMoves()} tiles are moved per step, the remaining
+ * columns are continued in the next step, so a collapsing cave spreads over a
+ * few frames. Tile entities of falling tiles are recreated, not moved. Tiles
+ * that were generated floating only fall once something next to them changes.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class FallingTiles {
+    
+    public static final float STEP_SECONDS = 1 / 20f;
+    public static final int DEFAULT_MAX_MOVES = 1024;
+    
+    private static final Counter MOVED = Metrics.counter("world.fallingTilesMoved");
+    
+    private final TileWorld tileWorld;
+    
+    //the rows that might have to fall per column, from is -1 if the column is not active
+    private final int[] from;
+    private final int[] to;
+    
+    //ring buffer of the active columns, in the order they were marked
+    private int[] queue = new int[16];
+    private int head = 0;
+    private int size = 0;
+    
+    private int maxMoves = DEFAULT_MAX_MOVES;
+    private float accumulator = 0;
+    
+    FallingTiles(TileWorld tileWorld) {
+        this.tileWorld = tileWorld;
+        this.from = new int[tileWorld.getWorldWidth()];
+        this.to = new int[tileWorld.getWorldWidth()];
+        Arrays.fill(this.from, -1);
+    }
+    
+    /**
+     * Sets how many tiles are moved per step at most.
+     *
+     * @param maxMoves the maximum, must be positive
+     */
+    public void setMaxMoves(int maxMoves) {
+        if (maxMoves <= 0) {
+            throw new IllegalArgumentException("Max moves must be positive: " + maxMoves);
+        }
+        this.maxMoves = maxMoves;
+    }
+    
+    public int getMaxMoves() {
+        return this.maxMoves;
+    }
+    
+    /**
+     * @return the amount of active columns
+     */
+    public int getActiveColumnCount() {
+        return this.size;
+    }
+    
+    /**
+     * Marks the column of a changed tile active if the change can make
+     * something fall.
+     *
+     * @param tx global tile x of the changed tile
+     * @param ty global tile y of the changed tile
+     */
+    void tileChanged(int tx, int ty) {
+        Tile t = this.tileWorld.getTileIfGenerated(tx, ty);
+        if (t == null) {
+            return;
+        }
+        if (t.isAffectedByGravity() && isFree(tx, ty - 1)) {
+            mark(tx, ty);
+        }
+        Tile above = this.tileWorld.getTileIfGenerated(tx, ty + 1);
+        if (above != null && above.isAffectedByGravity() && !t.isSolid()) {
+            mark(tx, ty + 1);
+        }
+    }
+    
+    /**
+     * Runs the steps that are due.
+     *
+     * @param delta the seconds of this update
+     */
+    public void update(float delta) {
+        if (this.size == 0) {
+            this.accumulator = 0;
+            return;
+        }
+        //no catching up, falling slower under load is fine
+        this.accumulator = Math.min(this.accumulator + delta, STEP_SECONDS);
+        if (this.accumulator >= STEP_SECONDS) {
+            this.accumulator -= STEP_SECONDS;
+            step();
+        }
+    }
+    
+    /**
+     * Moves the unsupported tiles of the active columns down by one tile.
+     * Columns marked while the moves are applied are left for the next step.
+     *
+     * @return the amount of moved tiles
+     */
+    public int step() {
+        TileEdit edit = this.tileWorld.edit();
+        int columns = this.size;
+        int moves = 0;
+        for (int i = 0; i < columns && moves < this.maxMoves; i++) {
+            int tx = poll();
+            int y = Math.max(1, this.from[tx]);
+            int end = Math.min(this.to[tx], this.tileWorld.getWorldHeight() - 1);
+            this.from[tx] = -1;
+            while (y <= end) {
+                Tile t = this.tileWorld.getTileIfGenerated(tx, y);
+                if (t == null) {
+                    break;
+                }
+                if (!t.isAffectedByGravity() || !isFree(tx, y - 1)) {
+                    y++;
+                    continue;
+                }
+                int top = y;
+                Tile above;
+                while ((above = this.tileWorld.getTileIfGenerated(tx, top + 1)) != null
+                        && above.isAffectedByGravity()) {
+                    top++;
+                }
+                edit.set(this.tileWorld.getTileIfGenerated(tx, y - 1), tx, top);
+                for (int k = y; k <= top; k++) {
+                    edit.set(this.tileWorld.getTileIfGenerated(tx, k), tx, k - 1);
+                }
+                moves += top - y + 1;
+                y = top + 1;
+            }
+        }
+        edit.commit();
+        MOVED.add(moves);
+        return moves;
+    }
+    
+    long estimateBytes() {
+        return RegionMemory.object(4 * RegionMemory.REFERENCE + 4 * 4) + 2 * RegionMemory.array(this.from.length, 4)
+                + RegionMemory.array(this.queue.length, 4);
+    }
+    
+    //gravity tiles that are not solid must not swap with each other forever
+    private boolean isFree(int tx, int ty) {
+        Tile t = this.tileWorld.getTileIfGenerated(tx, ty);
+        return t != null && !t.isSolid() && !t.isAffectedByGravity();
+    }
+    
+    private void mark(int tx, int ty) {
+        if (this.from[tx] >= 0) {
+            this.from[tx] = Math.min(this.from[tx], ty);
+            this.to[tx] = Math.max(this.to[tx], ty);
+            return;
+        }
+        this.from[tx] = ty;
+        this.to[tx] = ty;
+        if (this.size == this.queue.length) {
+            int[] grown = new int[this.size * 2];
+            int tail = Math.min(this.size, this.queue.length - this.head);
+            System.arraycopy(this.queue, this.head, grown, 0, tail);
+            System.arraycopy(this.queue, 0, grown, tail, this.size - tail);
+            this.queue = grown;
+            this.head = 0;
+        }
+        this.queue[(this.head + this.size) % this.queue.length] = tx;
+        this.size++;
+    }
+    
+    private int poll() {
+        int tx = this.queue[this.head];
+        this.head = (this.head + 1) % this.queue.length;
+        this.size--;
+        return tx;
+    }
+}
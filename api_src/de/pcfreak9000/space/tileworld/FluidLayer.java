@@ -0,0 +1,256 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+
+import de.pcfreak9000.space.util.metrics.Counter;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * The fluid of a {@link Region}, a level from 0 (dry) to {@link #FULL} per
+ * tile. Fluid can only be in tiles that are not solid, a solid tile placed
+ * into fluid destroys it.<br>
+ * Only an active set of cells is simulated. A cell is woken when its fluid or
+ * a tile next to it changes, and falls asleep again once nothing flows out of
+ * it anymore, so settled fluid costs nothing. Each step a woken cell first
+ * fills the cell below it, then evens out with its left and right neighbour.
+ * There is no pressure, fluid does not rise in U-bends. Steps run at a fixed
+ * rate from {@link Region#tick(de.omnikryptec.util.updater.Time, TickBudget)},
+ * so with {@link TileWorld#tickParallel(java.util.Collection, de.omnikryptec.util.updater.Time)}
+ * the regions are simulated in parallel; flows into other regions go through
+ * {@link TileWorld#addFluid(int, int, int)} and are deferred like other
+ * changes to other regions. Since a deferred flow is not visible until the
+ * phase is over, a region only runs one step per phase, and catches up on the
+ * rest in the following updates.<br>
+ * A region only gets a fluid layer once fluid is added to it.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class FluidLayer {
+    
+    public static final int FULL = 16;
+    public static final float STEP_SECONDS = 1 / 15f;
+    
+    //at most this many steps are caught up in one update, the rest is dropped
+    private static final int MAX_STEPS = 4;
+    
+    private static final Counter CELLS_UPDATED = Metrics.counter("fluid.cellsUpdated");
+    
+    private static final int SIZE = Region.REGION_TILE_SIZE;
+    
+    private final Region region;
+    private final TileWorld tileWorld;
+    
+    private final byte[] levels = new byte[SIZE * SIZE];
+    private int amount = 0;
+    
+    //the cells of the next step, in the order they were woken, and a bit per cell whether it is in there
+    private int[] active = new int[64];
+    private int activeCount = 0;
+    private int[] stepping = new int[64];
+    private final long[] queued = new long[SIZE * SIZE / 64];
+    
+    private float accumulator = 0;
+    
+    FluidLayer(Region region, TileWorld tileWorld) {
+        this.region = region;
+        this.tileWorld = tileWorld;
+    }
+    
+    /**
+     * @param tx global tile x inside of the region
+     * @param ty global tile y inside of the region
+     * @return the fluid level of the tile
+     */
+    public int getLevel(int tx, int ty) {
+        return this.levels[index(tx, ty)];
+    }
+    
+    /**
+     * @return the summed fluid levels of all tiles
+     */
+    public int getAmount() {
+        return this.amount;
+    }
+    
+    /**
+     * @return the amount of cells that will be simulated in the next step
+     */
+    public int getActiveCount() {
+        return this.activeCount;
+    }
+    
+    /**
+     * Adds fluid to a tile, clamped to 0 and {@link #FULL}, and wakes it. If
+     * fluid is taken away, the tiles that could flow into it are woken too.
+     *
+     * @param tx     global tile x inside of the region
+     * @param ty     global tile y inside of the region
+     * @param amount the amount to add, may be negative
+     */
+    void add(int tx, int ty, int amount) {
+        int index = index(tx, ty);
+        setLevel(index, Math.max(0, Math.min(FULL, this.levels[index] + amount)));
+        if (amount < 0) {
+            wakeAround(tx, ty);
+        } else {
+            wake(index);
+        }
+    }
+    
+    /**
+     * Wakes a single tile, e.g. after a tile next to it changed.
+     *
+     * @param tx global tile x inside of the region
+     * @param ty global tile y inside of the region
+     */
+    void wake(int tx, int ty) {
+        wake(index(tx, ty));
+    }
+    
+    void update(float delta) {
+        if (this.activeCount == 0) {
+            this.accumulator = 0;
+            return;
+        }
+        this.accumulator = Math.min(this.accumulator + delta, MAX_STEPS * STEP_SECONDS);
+        //another step would see the old levels of the cells flowed into in other regions and overfill them
+        int maxSteps = this.tileWorld.getParallelTickRegion() != null ? 1 : MAX_STEPS;
+        for (int i = 0; i < maxSteps && this.accumulator >= STEP_SECONDS && this.activeCount > 0; i++) {
+            this.accumulator -= STEP_SECONDS;
+            step();
+        }
+    }
+    
+    private void step() {
+        int[] cells = this.active;
+        int count = this.activeCount;
+        this.active = this.stepping;
+        this.activeCount = 0;
+        this.stepping = cells;
+        for (int i = 0; i < count; i++) {
+            this.queued[cells[i] >>> 6] &= ~(1L << cells[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            flow(cells[i]);
+        }
+        CELLS_UPDATED.add(count);
+    }
+    
+    private void flow(int index) {
+        int level = this.levels[index];
+        if (level == 0) {
+            return;
+        }
+        int tx = this.region.getGlobalTileX() + index / SIZE;
+        int ty = this.region.getGlobalTileY() + index % SIZE;
+        if (this.region.getTile(tx, ty).isSolid()) {
+            setLevel(index, 0);
+            return;
+        }
+        int before = level;
+        level -= flowTo(level, tx, ty - 1, true);
+        if (level > 1) {
+            level -= flowTo(level, tx - 1, ty, false);
+        }
+        if (level > 1) {
+            level -= flowTo(level, tx + 1, ty, false);
+        }
+        if (level != before) {
+            setLevel(index, level);
+            wakeAround(tx, ty);
+        }
+    }
+    
+    /**
+     * @return how much flowed into the target tile
+     */
+    private int flowTo(int level, int tx, int ty, boolean down) {
+        int target = levelAt(tx, ty);
+        if (target < 0) {
+            return 0;
+        }
+        int move = down ? Math.min(level, FULL - target) : (level - target) / 2;
+        if (move <= 0) {
+            return 0;
+        }
+        if (contains(tx, ty)) {
+            int index = index(tx, ty);
+            setLevel(index, target + move);
+            wake(index);
+        } else {
+            this.tileWorld.addFluid(tx, ty, move);
+        }
+        return move;
+    }
+    
+    /**
+     * @return the fluid level of a tile, or -1 if no fluid can flow there
+     */
+    private int levelAt(int tx, int ty) {
+        if (contains(tx, ty)) {
+            return this.region.getTile(tx, ty).isSolid() ? -1 : this.levels[index(tx, ty)];
+        }
+        if (!this.tileWorld.inBounds(tx, ty)) {
+            return -1;
+        }
+        Region r = this.tileWorld.getRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        if (r == null || r.getTile(tx, ty).isSolid()) {
+            return -1;
+        }
+        return r.getFluidLevel(tx, ty);
+    }
+    
+    //the tile itself and the ones that could flow into it
+    private void wakeAround(int tx, int ty) {
+        wakeAt(tx, ty);
+        wakeAt(tx, ty + 1);
+        wakeAt(tx - 1, ty);
+        wakeAt(tx + 1, ty);
+    }
+    
+    private void wakeAt(int tx, int ty) {
+        if (contains(tx, ty)) {
+            wake(index(tx, ty));
+        } else {
+            this.tileWorld.addFluid(tx, ty, 0);
+        }
+    }
+    
+    private void wake(int index) {
+        //dry cells have nothing to push, they are filled by their neighbours
+        if (this.levels[index] == 0) {
+            return;
+        }
+        long mask = 1L << index;
+        if ((this.queued[index >>> 6] & mask) != 0) {
+            return;
+        }
+        this.queued[index >>> 6] |= mask;
+        if (this.activeCount == this.active.length) {
+            this.active = Arrays.copyOf(this.active, this.activeCount * 2);
+        }
+        this.active[this.activeCount++] = index;
+    }
+    
+    private void setLevel(int index, int level) {
+        this.amount += level - this.levels[index];
+        this.levels[index] = (byte) level;
+    }
+    
+    long estimateBytes() {
+        return RegionMemory.object(5 * RegionMemory.REFERENCE + 3 * 4) + RegionMemory.array(this.levels.length, 1)
+                + RegionMemory.array(this.active.length, 4) + RegionMemory.array(this.stepping.length, 4)
+                + RegionMemory.array(this.queued.length, 8);
+    }
+    
+    private boolean contains(int tx, int ty) {
+        int lx = tx - this.region.getGlobalTileX();
+        int ly = ty - this.region.getGlobalTileY();
+        return lx >= 0 && lx < SIZE && ly >= 0 && ly < SIZE;
+    }
+    
+    private int index(int tx, int ty) {
+        return (tx - this.region.getGlobalTileX()) * SIZE + ty - this.region.getGlobalTileY();
+    }
+}
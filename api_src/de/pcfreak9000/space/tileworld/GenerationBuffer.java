@@ -0,0 +1,174 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+
+import de.omnikryptec.util.Util;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Raw tile ids of a {@link Region} that is being generated. Generators write
+ * into this buffer instead of calling {@link Region#setTile(Tile, int, int)}
+ * for every tile, and the region takes the whole buffer over in a single pass
+ * with {@link Region#ingest(GenerationBuffer)}. Ids are indices into a palette
+ * local to this buffer, id 0 is always {@link Tile#EMPTY}.<br>
+ * Writes outside of the region are kept, so structures can simply be placed
+ * across region borders. The {@link TileWorld} applies them to the neighbour
+ * regions, or, if those are not generated yet, queues them until they are.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class GenerationBuffer {
+    
+    public static final int EMPTY_ID = 0;
+    
+    private final int tx;
+    private final int ty;
+    
+    private final short[] foreground;
+    private final short[] background;
+    
+    private Tile[] palette = new Tile[16];
+    private int paletteSize;
+    
+    private PendingWrites outside;
+    
+    public GenerationBuffer(Region region) {
+        this(region.getGlobalRegionX(), region.getGlobalRegionY());
+    }
+    
+    public GenerationBuffer(int rx, int ry) {
+        this.tx = rx * Region.REGION_TILE_SIZE;
+        this.ty = ry * Region.REGION_TILE_SIZE;
+        this.foreground = new short[Region.REGION_TILE_SIZE * Region.REGION_TILE_SIZE];
+        this.background = new short[Region.REGION_TILE_SIZE * Region.REGION_TILE_SIZE];
+        this.palette[EMPTY_ID] = Tile.EMPTY;
+        this.paletteSize = 1;
+    }
+    
+    public int getGlobalTileX() {
+        return this.tx;
+    }
+    
+    public int getGlobalTileY() {
+        return this.ty;
+    }
+    
+    public int getGlobalRegionX() {
+        return Region.toGlobalRegion(this.tx);
+    }
+    
+    public int getGlobalRegionY() {
+        return Region.toGlobalRegion(this.ty);
+    }
+    
+    /**
+     * The id of a tile in this buffer. Look ids up once outside of the
+     * generation loops and use {@link #setTile(int, int, int)}.
+     *
+     * @param t the tile
+     * @return the id
+     */
+    public int idOf(Tile t) {
+        Util.ensureNonNull(t);
+        for (int i = 0; i < this.paletteSize; i++) {
+            if (this.palette[i] == t) {
+                return i;
+            }
+        }
+        if (this.paletteSize == Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many different tiles in one region");
+        }
+        if (this.paletteSize == this.palette.length) {
+            this.palette = Arrays.copyOf(this.palette, this.paletteSize * 2);
+        }
+        this.palette[this.paletteSize] = t;
+        return this.paletteSize++;
+    }
+    
+    public Tile byId(int id) {
+        return this.palette[id];
+    }
+    
+    public void setTile(int id, int gtx, int gty) {
+        if (!contains(gtx, gty)) {
+            writeOutside(id, gtx, gty, false);
+            return;
+        }
+        this.foreground[index(gtx, gty)] = (short) id;
+    }
+    
+    public void setTile(Tile t, int gtx, int gty) {
+        setTile(idOf(t), gtx, gty);
+    }
+    
+    public void setTileBackground(int id, int gtx, int gty) {
+        if (!contains(gtx, gty)) {
+            writeOutside(id, gtx, gty, true);
+            return;
+        }
+        this.background[index(gtx, gty)] = (short) id;
+    }
+    
+    public void setTileBackground(Tile t, int gtx, int gty) {
+        setTileBackground(idOf(t), gtx, gty);
+    }
+    
+    /**
+     * @param gtx global tile x inside of the region of this buffer
+     * @param gty global tile y inside of the region of this buffer
+     * @return the id of the foreground tile
+     */
+    public int getTileId(int gtx, int gty) {
+        checkContains(gtx, gty);
+        return this.foreground[index(gtx, gty)];
+    }
+    
+    public int getTileBackgroundId(int gtx, int gty) {
+        checkContains(gtx, gty);
+        return this.background[index(gtx, gty)];
+    }
+    
+    public boolean contains(int gtx, int gty) {
+        return gtx >= this.tx && gtx < this.tx + Region.REGION_TILE_SIZE && gty >= this.ty
+                && gty < this.ty + Region.REGION_TILE_SIZE;
+    }
+    
+    /**
+     * @return the writes outside of the region of this buffer, or null if there
+     *         are none
+     */
+    PendingWrites getOutsideWrites() {
+        return this.outside;
+    }
+    
+    int getLocal(boolean background, int localX, int localY) {
+        return (background ? this.background : this.foreground)[localX * Region.REGION_TILE_SIZE + localY];
+    }
+    
+    void setLocal(boolean background, int localX, int localY, int id) {
+        (background ? this.background : this.foreground)[localX * Region.REGION_TILE_SIZE + localY] = (short) id;
+    }
+    
+    int getPaletteSize() {
+        return this.paletteSize;
+    }
+    
+    private void writeOutside(int id, int gtx, int gty, boolean background) {
+        if (this.outside == null) {
+            this.outside = new PendingWrites();
+        }
+        this.outside.add(this.palette[id], gtx, gty, background);
+    }
+    
+    private void checkContains(int gtx, int gty) {
+        if (!contains(gtx, gty)) {
+            throw new IllegalArgumentException(
+                    String.format("Tile (%d, %d) is outside of the region at (%d, %d)", gtx, gty, this.tx, this.ty));
+        }
+    }
+    
+    private int index(int gtx, int gty) {
+        return (gtx - this.tx) * Region.REGION_TILE_SIZE + gty - this.ty;
+    }
+}
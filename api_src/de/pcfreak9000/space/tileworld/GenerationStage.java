@@ -0,0 +1,27 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Random;
+
+/**
+ * One step of a {@link StagedRegionGenerator}. Stages only write into the
+ * buffer they are given, because the buffers of different regions are filled
+ * in parallel. Of the {@link TileWorld}, a stage may only read the thread safe
+ * parts: the dimensions of the world and its region array, and the column
+ * values from {@link TileWorld#getColumn(int)} or
+ * {@link TileWorld#getSurfaceHeight(int)} with the {@link ColumnData} they
+ * return. Regions, tiles and everything else of the world must not be touched.
+ *
+ * @author pcfreak9000
+ *
+ */
+@FunctionalInterface
+public interface GenerationStage {
+    
+    /**
+     * @param tileWorld the world the region belongs to
+     * @param buffer    the tiles of the region generated so far
+     * @param random    a random seeded from the world seed, the region and this
+     *                  stage, only used by this stage
+     */
+    void generate(TileWorld tileWorld, GenerationBuffer buffer, Random random);
+}
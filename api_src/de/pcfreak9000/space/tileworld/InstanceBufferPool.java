@@ -0,0 +1,124 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import de.omnikryptec.render3.d2.BatchCache;
+import de.omnikryptec.render3.d2.compat.BorderedBatchAdapter;
+import de.omnikryptec.render3.d2.instanced.InstancedBatch2D;
+
+/**
+ * Pool of the packing batches used to build the tile caches of the regions of
+ * a {@link TileWorld}. A buffer is only leased while a section is packed and
+ * given back right after flushing, so there are about as many buffers as
+ * sections are packed at the same time, usually one. The {@link BatchCache}s
+ * the buffers flush into are not pooled: they belong to the
+ * {@link RegionTileCache} of a region and are dropped by
+ * {@link RegionTileCache#release()} when the region is unloaded. Only use from
+ * the render thread.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class InstanceBufferPool {
+    
+    public static class Buffer {
+        
+        private final InstancedBatch2D batch;
+        private final BorderedBatchAdapter adapter;
+        
+        private Buffer() {
+            this.batch = new InstancedBatch2D(true);
+            this.adapter = new BorderedBatchAdapter(this.batch);
+        }
+        
+        public BorderedBatchAdapter begin() {
+            this.adapter.begin();
+            return this.adapter;
+        }
+        
+        public BatchCache flush() {
+            return this.batch.flushWithOptionalCache();
+        }
+    }
+    
+    private final Deque<Buffer> free = new ArrayDeque<>();
+    
+    //scratch space of the section being packed, shared like the buffers
+    private final SectionPlan sectionPlan = new SectionPlan(RegionTileCache.SECTION_TILE_SIZE);
+    
+    private int allocated;
+    private int leased;
+    private long leaseCount;
+    private long cachedInstances;
+    
+    /**
+     * Leases a buffer. Return it with {@link #release(Buffer)} after flushing.
+     *
+     * @return a buffer
+     */
+    public Buffer lease() {
+        Buffer buffer = this.free.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+            this.allocated++;
+        }
+        this.leased++;
+        this.leaseCount++;
+        return buffer;
+    }
+    
+    public void release(Buffer buffer) {
+        this.free.push(buffer);
+        this.leased--;
+    }
+    
+    SectionPlan getSectionPlan() {
+        return this.sectionPlan;
+    }
+    
+    void addCachedInstances(int delta) {
+        this.cachedInstances += delta;
+    }
+    
+    /**
+     * @return the amount of buffers that have been created by this pool
+     */
+    public int getAllocatedCount() {
+        return this.allocated;
+    }
+    
+    /**
+     * @return the amount of buffers that are currently leased
+     */
+    public int getLeasedCount() {
+        return this.leased;
+    }
+    
+    /**
+     * @return the amount of buffers that are currently available
+     */
+    public int getPooledCount() {
+        return this.allocated - this.leased;
+    }
+    
+    /**
+     * @return how often a buffer has been leased in total
+     */
+    public long getTotalLeases() {
+        return this.leaseCount;
+    }
+    
+    /**
+     * @return the amount of tile instances currently cached by loaded regions
+     */
+    public long getCachedInstances() {
+        return this.cachedInstances;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("InstanceBufferPool[allocated=%d, leased=%d, leases=%d, cachedInstances=%d]",
+                this.allocated, this.leased, this.leaseCount, this.cachedInstances);
+    }
+}
@@ -0,0 +1,124 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.BitSet;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Image of the explored part of a {@link TileWorld} with one pixel per
+ * 2<sup>level</sup> x 2<sup>level</sup> tiles. A region is copied in once
+ * when it is generated, afterwards only the pixels of changed tiles are
+ * updated, so keeping the minimap up to date never depends on the world size.
+ * Does not need any rendering context.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class Minimap {
+    
+    private final TileWorld tileWorld;
+    private final int level;
+    
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    
+    private final BitSet explored;
+    
+    Minimap(TileWorld tileWorld, int level) {
+        if (level < 0 || level > RegionLod.MAX_LEVEL) {
+            throw new IllegalArgumentException("Minimap level out of range: " + level);
+        }
+        this.tileWorld = tileWorld;
+        this.level = level;
+        this.width = (tileWorld.getWorldWidth() + (1 << level) - 1) >> level;
+        this.height = (tileWorld.getWorldHeight() + (1 << level) - 1) >> level;
+        this.pixels = new int[this.width * this.height];
+        this.explored = new BitSet();
+    }
+    
+    void regionGenerated(Region region) {
+        copyRegion(region);
+        this.explored.set(regionIndex(region));
+    }
+    
+    void regionChanged(Region region) {
+        if (this.explored.get(regionIndex(region))) {
+            copyRegion(region);
+        }
+    }
+    
+    private void copyRegion(Region region) {
+        int size = RegionLod.getSize(this.level);
+        int xStart = region.getGlobalTileX() >> this.level;
+        int yStart = region.getGlobalTileY() >> this.level;
+        for (int i = 0; i < size && xStart + i < this.width; i++) {
+            for (int j = 0; j < size && yStart + j < this.height; j++) {
+                setPixel(xStart + i, yStart + j, region.getLod().get(this.level, i, j));
+            }
+        }
+    }
+    
+    void tileChanged(Region region, int gtx, int gty) {
+        if (!this.explored.get(regionIndex(region))) {
+            //still generating, copied as a whole afterwards
+            return;
+        }
+        int lx = (gtx - region.getGlobalTileX()) >> this.level;
+        int ly = (gty - region.getGlobalTileY()) >> this.level;
+        setPixel(gtx >> this.level, gty >> this.level, region.getLod().get(this.level, lx, ly));
+    }
+    
+    public boolean isExplored(int rx, int ry) {
+        return this.explored.get(rx * this.tileWorld.getRegionArrayHeight() + ry);
+    }
+    
+    /**
+     * The packed ARGB colour of a minimap pixel, (0, 0) is the bottom left of
+     * the world.
+     *
+     * @param x pixel x
+     * @param y pixel y
+     * @return packed ARGB colour, fully transparent if unexplored
+     */
+    public int getPixel(int x, int y) {
+        return this.pixels[x * this.height + y];
+    }
+    
+    public int getWidth() {
+        return this.width;
+    }
+    
+    public int getHeight() {
+        return this.height;
+    }
+    
+    public int getLevel() {
+        return this.level;
+    }
+    
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < this.width; x++) {
+            for (int y = 0; y < this.height; y++) {
+                image.setRGB(x, this.height - 1 - y, getPixel(x, y));
+            }
+        }
+        return image;
+    }
+    
+    public void writePng(OutputStream out) throws IOException {
+        ImageIO.write(toImage(), "png", out);
+    }
+    
+    private void setPixel(int x, int y, int argb) {
+        this.pixels[x * this.height + y] = argb;
+    }
+    
+    private int regionIndex(Region region) {
+        return region.getGlobalRegionX() * this.tileWorld.getRegionArrayHeight() + region.getGlobalRegionY();
+    }
+}
@@ -0,0 +1,150 @@
+package de.pcfreak9000.space.tileworld;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.tileworld.tile.TileState;
+import de.pcfreak9000.space.util.metrics.Counter;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * The pending {@link Tile#neighbourChanged(TileWorld, TileState, TileState)}
+ * calls of a {@link TileWorld}. A tile change queues a notification for each
+ * of its four neighbours that wants them, a neighbour that is already queued
+ * for the same side is not queued again. {@link #process()} handles at most
+ * {@link #getCap()} notifications per update, and notifications caused by
+ * these are handled in the next update at the earliest, so chain reactions
+ * spread over several updates instead of recursing.<br>
+ * Whether a notification is queued is kept as a bit per tile and side in the
+ * region of the notified tile.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class NeighbourUpdates {
+    
+    public static final int DEFAULT_CAP = 4096;
+    
+    private static final Counter PROCESSED = Metrics.counter("world.neighbourUpdates");
+    
+    //the side of a tile its neighbour is on, index 0 is the neighbour to the right
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DY = { 0, 0, 1, -1 };
+    
+    private final TileWorld tileWorld;
+    
+    //ring buffer of packed global tile x, global tile y and side
+    private long[] queue = new long[64];
+    private int head = 0;
+    private int size = 0;
+    
+    private int cap = DEFAULT_CAP;
+    
+    NeighbourUpdates(TileWorld tileWorld) {
+        this.tileWorld = tileWorld;
+    }
+    
+    /**
+     * Sets how many notifications are handled per update at most.
+     *
+     * @param cap the maximum, must be positive
+     */
+    public void setCap(int cap) {
+        if (cap <= 0) {
+            throw new IllegalArgumentException("Cap must be positive: " + cap);
+        }
+        this.cap = cap;
+    }
+    
+    public int getCap() {
+        return this.cap;
+    }
+    
+    /**
+     * @return the amount of queued notifications
+     */
+    public int size() {
+        return this.size;
+    }
+    
+    /**
+     * Queues the notifications of the neighbours of a changed tile. Neighbours
+     * in regions that are not generated are skipped.
+     *
+     * @param tx global tile x of the changed tile
+     * @param ty global tile y of the changed tile
+     */
+    void tileChanged(int tx, int ty) {
+        for (int side = 0; side < 4; side++) {
+            int nx = tx + DX[side];
+            int ny = ty + DY[side];
+            if (!this.tileWorld.inBounds(nx, ny)) {
+                continue;
+            }
+            Region r = this.tileWorld.getRegion(Region.toGlobalRegion(nx), Region.toGlobalRegion(ny));
+            if (r == null || !r.getTile(nx, ny).hasNeighbourUpdates()) {
+                continue;
+            }
+            //seen from the neighbour, the changed tile is on the opposite side
+            int opposite = side ^ 1;
+            if (r.markNeighbourUpdate(nx, ny, opposite)) {
+                add(pack(nx, ny, opposite));
+            }
+        }
+    }
+    
+    /**
+     * Handles the queued notifications, up to the cap. Notifications queued
+     * from inside of this call are left for the next one.
+     *
+     * @return the amount of notifications handled
+     */
+    public int process() {
+        int count = Math.min(this.size, this.cap);
+        for (int i = 0; i < count; i++) {
+            long key = poll();
+            int tx = (int) (key >> 32);
+            int ty = (int) key >> 2;
+            int side = (int) key & 3;
+            Region r = this.tileWorld.getRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+            r.clearNeighbourUpdate(tx, ty, side);
+            TileState myState = r.getTileState(tx, ty);
+            //the tile might have been replaced since
+            if (!myState.getTile().hasNeighbourUpdates()) {
+                continue;
+            }
+            int nx = tx + DX[side];
+            int ny = ty + DY[side];
+            Region n = this.tileWorld.getRegion(Region.toGlobalRegion(nx), Region.toGlobalRegion(ny));
+            myState.getTile().neighbourChanged(this.tileWorld, myState, n.getTileState(nx, ny));
+        }
+        PROCESSED.add(count);
+        return count;
+    }
+    
+    long estimateBytes() {
+        return RegionMemory.object(RegionMemory.REFERENCE * 2 + 3 * 4) + RegionMemory.array(this.queue.length, 8);
+    }
+    
+    private static long pack(int tx, int ty, int side) {
+        return (long) tx << 32 | ((ty << 2 | side) & 0xFFFFFFFFL);
+    }
+    
+    private void add(long key) {
+        if (this.size == this.queue.length) {
+            long[] grown = new long[this.size * 2];
+            int tail = Math.min(this.size, this.queue.length - this.head);
+            System.arraycopy(this.queue, this.head, grown, 0, tail);
+            System.arraycopy(this.queue, 0, grown, tail, this.size - tail);
+            this.queue = grown;
+            this.head = 0;
+        }
+        this.queue[(this.head + this.size) % this.queue.length] = key;
+        this.size++;
+    }
+    
+    private long poll() {
+        long key = this.queue[this.head];
+        this.head = (this.head + 1) % this.queue.length;
+        this.size--;
+        return key;
+    }
+}
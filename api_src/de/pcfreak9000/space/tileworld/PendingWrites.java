@@ -0,0 +1,114 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Tile writes that could not be applied yet, in the order they were made.
+ * Used for the writes of a {@link GenerationBuffer} that reach outside of its
+ * region, the writes a {@link TileWorld} keeps for regions that have not been
+ * generated yet and the writes a region makes to other regions while it is
+ * ticked in parallel.
+ *
+ * @author pcfreak9000
+ *
+ */
+class PendingWrites {
+    
+    private Tile[] tiles = new Tile[16];
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private boolean[] background = new boolean[16];
+    private int size = 0;
+    
+    void add(Tile t, int tx, int ty, boolean background) {
+        if (this.size == this.tiles.length) {
+            int newLength = this.size * 2;
+            this.tiles = Arrays.copyOf(this.tiles, newLength);
+            this.xs = Arrays.copyOf(this.xs, newLength);
+            this.ys = Arrays.copyOf(this.ys, newLength);
+            this.background = Arrays.copyOf(this.background, newLength);
+        }
+        this.tiles[this.size] = t;
+        this.xs[this.size] = tx;
+        this.ys[this.size] = ty;
+        this.background[this.size] = background;
+        this.size++;
+    }
+    
+    long estimateBytes() {
+        int capacity = this.tiles.length;
+        return RegionMemory.object(4 * RegionMemory.REFERENCE + 4)
+                + RegionMemory.array(capacity, RegionMemory.REFERENCE) + 2 * RegionMemory.array(capacity, 4)
+                + RegionMemory.array(capacity, 1);
+    }
+    
+    int size() {
+        return this.size;
+    }
+    
+    Tile getTile(int i) {
+        return this.tiles[i];
+    }
+    
+    int getX(int i) {
+        return this.xs[i];
+    }
+    
+    int getY(int i) {
+        return this.ys[i];
+    }
+    
+    boolean isBackground(int i) {
+        return this.background[i];
+    }
+    
+    void applyTo(GenerationBuffer buffer) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.background[i]) {
+                buffer.setTileBackground(this.tiles[i], this.xs[i], this.ys[i]);
+            } else {
+                buffer.setTile(this.tiles[i], this.xs[i], this.ys[i]);
+            }
+        }
+    }
+    
+    /**
+     * Applies the writes to the regions they are in, generating them if
+     * needed. Their light is not resolved.
+     *
+     * @param world   the world
+     * @param touched collects the regions written to
+     */
+    void applyTo(TileWorld world, Set<Region> touched) {
+        for (int i = 0; i < this.size; i++) {
+            Region r = world.requestRegion(Region.toGlobalRegion(this.xs[i]), Region.toGlobalRegion(this.ys[i]));
+            if (r == null) {
+                continue;
+            }
+            touched.add(r);
+            if (this.background[i]) {
+                r.setTileBackground(this.tiles[i], this.xs[i], this.ys[i]);
+            } else {
+                r.setTile(this.tiles[i], this.xs[i], this.ys[i]);
+            }
+        }
+    }
+    
+    void clear() {
+        Arrays.fill(this.tiles, 0, this.size, null);
+        this.size = 0;
+    }
+    
+    void applyTo(Region region) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.background[i]) {
+                region.setTileBackground(this.tiles[i], this.xs[i], this.ys[i]);
+            } else {
+                region.setTile(this.tiles[i], this.xs[i], this.ys[i]);
+            }
+        }
+    }
+}
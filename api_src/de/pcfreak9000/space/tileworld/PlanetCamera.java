@@ -7,9 +7,14 @@ import de.omnikryptec.util.math.MathUtil;
 
 public class PlanetCamera {
 
+    public static final float MIN_ZOOM = 1;
+    //far enough out to use the coarsest level of detail
+    public static final float MAX_ZOOM = 16;
+
     private final AdaptiveCamera cam;
     private int width;
     private int height;
+    private float zoom = 1;
 
     public PlanetCamera() {
         this.cam = new AdaptiveCamera((w, h) -> deal(w, h));
@@ -30,6 +35,31 @@ public class PlanetCamera {
         return this.height;
     }
 
+    /**
+     * @return world units per default camera unit, bigger values zoom out
+     */
+    public float getZoom() {
+        return this.zoom;
+    }
+
+    /**
+     * Sets the zoom, clamped to {@link #MIN_ZOOM} and {@link #MAX_ZOOM}. The
+     * loading fence range and the level of detail of the regions follow it.
+     *
+     * @param zoom world units per default camera unit
+     */
+    public void setZoom(float zoom) {
+        this.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+
+    public float getWorldWidth() {
+        return this.width * this.zoom;
+    }
+
+    public float getWorldHeight() {
+        return this.height * this.zoom;
+    }
+
     public AdaptiveCamera getCameraActual() {
         return this.cam;
     }
@@ -4,34 +4,34 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
 import java.util.function.Predicate;
 
-import org.joml.FrustumIntersection;
-import org.joml.Matrix3x2f;
-
 import com.google.common.base.Objects;
 
-import de.omnikryptec.core.Omnikryptec;
 import de.omnikryptec.ecs.Entity;
-import de.omnikryptec.libapi.exposed.render.Texture;
-import de.omnikryptec.render.batch.SimpleBatch2D;
-import de.omnikryptec.render3.d2.BatchCache;
-import de.omnikryptec.render3.d2.compat.BorderedBatchAdapter;
-import de.omnikryptec.render3.d2.instanced.InstancedBatch2D;
-import de.omnikryptec.render3.d2.sprites.Sprite;
 import de.omnikryptec.util.Logger;
 import de.omnikryptec.util.Util;
 import de.omnikryptec.util.data.Color;
 import de.omnikryptec.util.math.Mathd;
 import de.omnikryptec.util.updater.Time;
-import de.pcfreak9000.space.tileworld.ecs.RenderComponent;
 import de.pcfreak9000.space.tileworld.ecs.TickRegionComponent;
+import de.pcfreak9000.space.tileworld.tile.ScheduledTickable;
 import de.pcfreak9000.space.tileworld.tile.Tickable;
 import de.pcfreak9000.space.tileworld.tile.Tile;
 import de.pcfreak9000.space.tileworld.tile.TileEntity;
 import de.pcfreak9000.space.tileworld.tile.TileState;
+import de.pcfreak9000.space.util.metrics.Counter;
+import de.pcfreak9000.space.util.metrics.Histogram;
+import de.pcfreak9000.space.util.metrics.Metrics;
+import de.pcfreak9000.space.util.noise.Seeds;
 
 public class Region {
     
@@ -40,14 +40,36 @@ public class Region {
         float v;
     }
     
+    private static class ScheduledTick implements Comparable<ScheduledTick> {
+        final TileState state;
+        final double due;
+        final double since;
+        final long order;
+        boolean cancelled = false;
+        
+        ScheduledTick(TileState state, double due, double since, long order) {
+            this.state = state;
+            this.due = due;
+            this.since = since;
+            this.order = order;
+        }
+        
+        @Override
+        public int compareTo(ScheduledTick o) {
+            int c = Double.compare(this.due, o.due);
+            return c != 0 ? c : Long.compare(this.order, o.order);
+        }
+    }
+    
     private static final Logger LOGGER = Logger.getLogger(Region.class);
     
-    private static final boolean DEBUG_SHOW_BORDERS = false;
+    private static final Histogram LIGHT_NODES = Metrics.histogram("light.bfsNodes");
+    private static final Counter TICKABLES_RUN = Metrics.counter("region.tickablesRun");
+    private static final Counter SCHEDULED_RUN = Metrics.counter("region.scheduledTicksRun");
+    private static final Counter RANDOM_RUN = Metrics.counter("region.randomTicksRun");
     
     public static final int REGION_TILE_SIZE = 64;
     
-    private static final float BACKGROUND_FACTOR = 0.5f;
-    
     public static int toGlobalRegion(int globalTile) {
         return (int) Mathd.floor(globalTile / (double) REGION_TILE_SIZE);
     }
@@ -67,19 +89,40 @@ public class Region {
     
     private final Queue<Tickable> tickablesForRemoval;
     private boolean ticking = false;
-    
-    private InstancedBatch2D tileRenderer = new InstancedBatch2D(40000);
-    
-    private boolean recacheTiles;
-    private boolean recacheLights;
+    private int tickCursor = 0;
+    
+    //at most one pending tick per tile state, replaced ones are cancelled in place
+    private final PriorityQueue<ScheduledTick> scheduledTicks;
+    private final Map<TileState, ScheduledTick> scheduledByState;
+    private final List<ScheduledTick> dueTicks;
+    private long scheduleOrder = 0;
+    
+    //changes to other regions made while ticking in parallel, see TileWorld#tickParallel
+    private PendingWrites deferredWrites;
+    private List<ScheduledTick> deferredTicks;
+    private TickBudget parallelBudget;
+    private int[] deferredChanges;
+    private int deferredChangeCount = 0;
+    private int[] deferredFluids;
+    private int deferredFluidCount = 0;
+    
+    //a bit per tile and side, set while a neighbour update for it is queued in the world
+    private long[] queuedNeighbourUpdates;
+    
+    private int randomTickingTiles = 0;
+    private float randomTickBudget = 0;
+    private Random random;
+    
+    private FluidLayer fluids;
+    
+    private RegionRenderer renderer;
+    private final RegionLod lod;
     private final Queue<TileState> lightBfsQueue;
     private final Queue<RemovalNode>[] lightRemovalBfsQueue;
     //private final Queue<TileState> sunlightBfsQueue;
     //private final Queue<RemovalNode>[] sunlightRemovalBfsQueue;
     private final Entity regionEntity;
     
-    private BatchCache tileCache;
-    
     public Region(int rx, int ry, TileWorld tw) {
         this.tileWorld = tw;
         this.rx = rx;
@@ -91,91 +134,31 @@ public class Region {
         this.tileEntities = new ArrayList<>();
         this.tickables = new ArrayList<>();
         this.tickablesForRemoval = new ArrayDeque<>();
+        this.scheduledTicks = new PriorityQueue<>();
+        this.scheduledByState = new IdentityHashMap<>();
+        this.dueTicks = new ArrayList<>();
         this.regionEntity = new Entity();
+        this.lod = new RegionLod();
         this.lightBfsQueue = new ArrayDeque<>();
         this.lightRemovalBfsQueue = new Queue[3];
         Arrays.setAll(this.lightRemovalBfsQueue, (i) -> new ArrayDeque<>());
         //this.sunlightBfsQueue = new ArrayDeque<>();
         //this.sunlightRemovalBfsQueue = new Queue[3];
         //Arrays.setAll(this.sunlightRemovalBfsQueue, (i) -> new ArrayDeque<>());
-        //this.recacheLights = true;
         //this.recacheTiles = true;
-        RenderComponent rc = new RenderComponent(new Sprite() {
-            
-            
-            @Override
-            public void draw() {
-                if (Region.this.recacheTiles) {
-                    Region.this.recacheTiles = false;
-                    recacheTiles();
-                }
-                if (tileCache != null) {
-                    InstancedBatch2D.DEFAULT_BATCH.put(tileCache);
-                    //tileRenderer.put(tileCache);
-                }
-                if (DEBUG_SHOW_BORDERS) {
-                    //                    batch.color().set(1, 0, 0, 1);
-                    //                    float left = Region.this.tx * Tile.TILE_SIZE;
-                    //                    float right = (Region.this.tx + REGION_TILE_SIZE) * Tile.TILE_SIZE;
-                    //                    float top = Region.this.ty * Tile.TILE_SIZE;
-                    //                    float bot = (Region.this.ty + REGION_TILE_SIZE) * Tile.TILE_SIZE;
-                    //                    batch.drawLine(left, bot, left, top, 2);
-                    //                    batch.drawLine(left, bot, right, bot, 2);
-                    //                    batch.drawLine(right, top, left, top, 2);
-                    //                    batch.drawLine(right, top, right, bot, 2);
-                    //                    batch.color().setAll(1);
-                }
-            }
-            
-            @Override
-            public boolean isVisible(FrustumIntersection frustum) {
-                return frustum.testAab(Region.this.tx * Tile.TILE_SIZE, Region.this.ty * Tile.TILE_SIZE, 0,
-                        (Region.this.tx + REGION_TILE_SIZE) * Tile.TILE_SIZE,
-                        (Region.this.ty + REGION_TILE_SIZE) * Tile.TILE_SIZE, 0);
-                
-            }
-        });
-        //        rc.light = new Sprite() {
-        //            
-        //            @Override
-        //            public void draw(Batch2D batch) {
-        //                // queueRecacheLights();//TxDO WIP solution
-        //                if (Region.this.recacheLights) {
-        //                    Region.this.recacheLights = false;
-        //                    recacheLights();
-        //                }
-        //                Region.this.lightOcvm.draw(batch);
-        //                if (DEBUG_SHOW_BORDERS) {
-        //                    batch.color().set(1, 0, 0, 1);
-        //                    float left = Region.this.tx * Tile.TILE_SIZE;
-        //                    float right = (Region.this.tx + REGION_TILE_SIZE) * Tile.TILE_SIZE;
-        //                    float top = Region.this.ty * Tile.TILE_SIZE;
-        //                    float bot = (Region.this.ty + REGION_TILE_SIZE) * Tile.TILE_SIZE;
-        //                    batch.drawLine(left, bot, left, top, 2);
-        //                    batch.drawLine(left, bot, right, bot, 2);
-        //                    batch.drawLine(right, top, left, top, 2);
-        //                    batch.drawLine(right, top, right, bot, 2);
-        //                    batch.color().setAll(1);
-        //                }
-        //            }
-        //            
-        //            @Override
-        //            public boolean isVisible(FrustumIntersection frustum) {
-        //                return frustum.testAab((Region.this.tx - 3) * Tile.TILE_SIZE, (Region.this.ty - 3) * Tile.TILE_SIZE, 0,
-        //                        (Region.this.tx + REGION_TILE_SIZE + 3) * Tile.TILE_SIZE,
-        //                        (Region.this.ty + REGION_TILE_SIZE + 3) * Tile.TILE_SIZE, 0);
-        //            }
-        //        };
-        this.regionEntity.addComponent(rc);
         this.regionEntity.addComponent(new TickRegionComponent(this));
     }
     
-    private void queueRecacheLights() {
-        this.recacheLights = true;
+    private void queueRecacheTiles(Tile t, int tx, int ty) {
+        if (this.renderer != null) {
+            this.renderer.tileChanged(t, tx, ty);
+        }
     }
     
-    private void queueRecacheTiles() {
-        this.recacheTiles = true;
+    private void queueRecacheBackground(int tx, int ty) {
+        if (this.renderer != null) {
+            this.renderer.backgroundChanged(tx, ty);
+        }
     }
     
     public int getGlobalRegionX() {
@@ -198,6 +181,112 @@ public class Region {
         return regionEntity;
     }
     
+    /**
+     * The render state of this region, created on first use. A region that is
+     * never drawn, e.g. in a headless simulation, never creates one.
+     *
+     * @return the renderer
+     */
+    public RegionRenderer getRenderer() {
+        if (this.renderer == null) {
+            this.renderer = new RegionRenderer(this, this.tileWorld.getInstanceBufferPool());
+            this.regionEntity.addComponent(this.renderer.getRenderComponent());
+        }
+        return this.renderer;
+    }
+    
+    public boolean hasRenderer() {
+        return this.renderer != null;
+    }
+    
+    /**
+     * Estimates the heap usage of this region. Tile entities are counted with
+     * the size of an empty object, so their own state is missing. Walks the
+     * queues, so meant for reports, not for every frame.
+     *
+     * @return the estimate
+     */
+    public RegionMemory estimateMemory() {
+        RegionMemory memory = new RegionMemory(this.rx, this.ry);
+        memory.add(RegionMemory.Part.TILES, this.tiles.estimateBytes());
+        memory.add(RegionMemory.Part.BACKGROUND, this.tilesBackground.estimateBytes());
+        //every tile state has a light and a sunlight colour, background states included
+        memory.add(RegionMemory.Part.LIGHT, 2 * 2 * REGION_TILE_SIZE * REGION_TILE_SIZE * RegionMemory.COLOR);
+        memory.add(RegionMemory.Part.TILE_ENTITIES,
+                this.tileEntities.size() * (RegionMemory.TILE_ENTITY + RegionMemory.REFERENCE)
+                        + this.tickables.size() * RegionMemory.REFERENCE);
+        memory.add(RegionMemory.Part.LOD, this.lod.estimateBytes());
+        if (this.fluids != null) {
+            memory.add(RegionMemory.Part.FLUIDS, this.fluids.estimateBytes());
+        }
+        if (this.renderer != null) {
+            memory.add(RegionMemory.Part.RENDER_CACHE, this.renderer.estimateBytes());
+        }
+        long removals = 0;
+        for (Queue<RemovalNode> q : this.lightRemovalBfsQueue) {
+            removals += q.size();
+        }
+        memory.add(RegionMemory.Part.QUEUES,
+                (this.lightBfsQueue.size() + this.tickablesForRemoval.size()) * RegionMemory.REFERENCE
+                        + removals * (RegionMemory.REFERENCE + RegionMemory.object(RegionMemory.REFERENCE + 4)));
+        if (this.queuedNeighbourUpdates != null) {
+            memory.add(RegionMemory.Part.QUEUES, RegionMemory.array(this.queuedNeighbourUpdates.length, 8));
+        }
+        if (this.deferredChanges != null) {
+            memory.add(RegionMemory.Part.QUEUES, RegionMemory.array(this.deferredChanges.length, 4));
+        }
+        if (this.deferredFluids != null) {
+            memory.add(RegionMemory.Part.QUEUES, RegionMemory.array(this.deferredFluids.length, 4));
+        }
+        //queue slot, two identity map slots and the entry itself
+        memory.add(RegionMemory.Part.QUEUES, this.scheduledTicks.size()
+                * (3 * RegionMemory.REFERENCE + RegionMemory.object(RegionMemory.REFERENCE + 3 * 8 + 1)));
+        return memory;
+    }
+    
+    public RegionLod getLod() {
+        return this.lod;
+    }
+    
+    private static int lodColor(Tile t, Tile background) {
+        int argb = t.getLodColor();
+        if ((argb >>> 24) == 0) {
+            argb = RegionLod.multiply(background.getLodColor(), RegionTileCache.BACKGROUND_FACTOR,
+                    RegionTileCache.BACKGROUND_FACTOR, RegionTileCache.BACKGROUND_FACTOR, 1);
+        }
+        return argb;
+    }
+    
+    private void updateLod(int tx, int ty) {
+        int argb = lodColor(this.tiles.get(tx, ty).getTile(), this.tilesBackground.get(tx, ty).getTile());
+        if (this.lod.update(tx - this.tx, ty - this.ty, argb)) {
+            if (this.renderer != null) {
+                this.renderer.lodChanged();
+            }
+            Minimap minimap = this.tileWorld.getMinimap();
+            if (minimap != null) {
+                minimap.tileChanged(this, tx, ty);
+            }
+        }
+    }
+    
+    /**
+     * Recomputes the colour summary of all tiles and recaches everything, after
+     * the average texture colours of the tiles changed.
+     */
+    void resourcesReloaded() {
+        for (int i = 0; i < REGION_TILE_SIZE; i++) {
+            for (int j = 0; j < REGION_TILE_SIZE; j++) {
+                this.lod.set(i, j, lodColor(this.tiles.get(this.tx + i, this.ty + j).getTile(),
+                        this.tilesBackground.get(this.tx + i, this.ty + j).getTile()));
+            }
+        }
+        this.lod.rebuild();
+        if (this.renderer != null) {
+            this.renderer.allChanged();
+        }
+    }
+    
     public void tileIntersections(Collection<TileState> output, int x, int y, int w, int h,
             Predicate<TileState> predicate) {
         this.tiles.getAABB(output, x, y, w, h, predicate);
@@ -214,7 +303,7 @@ public class Region {
         return r.getTileState(tx, ty);
     }
     
-    private TileState getTileState(int x, int y) {
+    TileState getTileState(int x, int y) {
         return this.tiles.get(x, y);
     }
     
@@ -222,26 +311,43 @@ public class Region {
     
     public Tile setTile(Tile t, int tx, int ty) {
         Util.ensureNonNull(t);
+        Region tickingRegion = this.tileWorld.getParallelTickRegion();
+        if (tickingRegion != null && tickingRegion != this) {
+            tickingRegion.deferWrite(t, tx, ty, false);
+            return getTile(tx, ty);
+        }
         TileState newTileState = new TileState(t, tx, ty);
         TileState old = this.tiles.set(newTileState, tx, ty);
+        replaceTile(old, newTileState);
+        queueRecacheTiles(t, tx, ty);
+        updateLod(tx, ty);
+        this.tileWorld.tileChanged(tx, ty);
+        return old.getTile();
+    }
+    
+    //the bookkeeping of a tile change: scheduled and random ticks, tile entities and lights
+    private void replaceTile(TileState old, TileState newTileState) {
+        Tile t = newTileState.getTile();
+        cancelScheduledTick(old);
+        if (old.getTile().hasRandomTick()) {
+            this.randomTickingTiles--;
+        }
+        if (t.hasRandomTick()) {
+            this.randomTickingTiles++;
+        }
         if (old.getTileEntity() != null) {
             this.tileEntities.remove(old.getTileEntity());
             if (old.getTileEntity() instanceof Tickable) {
                 if (ticking) {
                     tickablesForRemoval.add((Tickable) old.getTileEntity());
                 } else {
-                    tickables.remove(old.getTileEntity());
+                    removeTickable((Tickable) old.getTileEntity());
                 }
             }
             old.setTileEntity(null);
         }
         if (t.hasTileEntity()) {
-            TileEntity te = t.createTileEntity(tileWorld, newTileState);
-            this.tileEntities.add(te);
-            newTileState.setTileEntity(te);
-            if (te instanceof Tickable) {
-                tickables.add((Tickable) te);
-            }
+            addTileEntity(newTileState, t.createTileEntity(tileWorld, newTileState));
         }
         if ((old.light().maxRGB() > 0 || !Objects.equal(old.getTile().getFilterColor(), t.getFilterColor())
                 || old.getTile().getLightLoss() != t.getLightLoss())) {
@@ -253,20 +359,94 @@ public class Region {
         if (t.hasLight()) {
             addLight(newTileState);
         }
-        queueRecacheTiles();
-        //        if (tileWorld.inBounds(tx + 1, ty)) {
-        //            getTileStateGlobal(tx + 1, ty).getTile().neighbourChanged(tileWorld, newTileState);
-        //        }
-        //        if (tileWorld.inBounds(tx - 1, ty)) {
-        //            getTileStateGlobal(tx - 1, ty).getTile().neighbourChanged(tileWorld, newTileState);
-        //        }
-        //        if (tileWorld.inBounds(tx, ty + 1)) {
-        //            getTileStateGlobal(tx, ty + 1).getTile().neighbourChanged(tileWorld, newTileState);
-        //        }
-        //        if (tileWorld.inBounds(tx, ty - 1)) {
-        //            getTileStateGlobal(tx, ty - 1).getTile().neighbourChanged(tileWorld, newTileState);
-        //        }
-        return old.getTile();
+    }
+    
+    /**
+     * Applies the changes of a {@link TileEdit} that are in this region in a
+     * single pass. The tiles are written to the storage directly, tile entities
+     * and lights are handled per tile, the level of detail, the tile caches and
+     * the minimap are updated once at the end. Only the last change of a
+     * position is applied, and it is skipped if it sets the tile that is
+     * already there and has no tile entity. Light is not resolved and the world
+     * is not notified, see {@link #notifyTilesChanged(long[])}.
+     *
+     * @param edit  the edit
+     * @param order indices of the changes of the edit, grouped by region
+     * @param from  first index into order of this region, inclusive
+     * @param to    last index into order of this region, exclusive
+     * @return the changed tiles as one bit per local y in a long per local x,
+     *         or null if nothing changed
+     */
+    long[] applyEdit(TileEdit edit, int[] order, int from, int to) {
+        long[] seen = new long[REGION_TILE_SIZE];
+        long[] changed = null;
+        //backwards, so earlier changes of the same position are never applied
+        for (int k = to - 1; k >= from; k--) {
+            int i = order[k];
+            int gtx = edit.getX(i);
+            int gty = edit.getY(i);
+            int lx = gtx - this.tx;
+            long bit = 1L << (gty - this.ty);
+            if ((seen[lx] & bit) != 0) {
+                continue;
+            }
+            seen[lx] |= bit;
+            Tile t = edit.getTile(i);
+            TileState old = this.tiles.get(gtx, gty);
+            if (old.getTile() == t && !t.hasTileEntity()) {
+                continue;
+            }
+            TileState newTileState = new TileState(t, gtx, gty);
+            this.tiles.set(newTileState, gtx, gty);
+            replaceTile(old, newTileState);
+            this.lod.set(lx, gty - this.ty, lodColor(t, this.tilesBackground.get(gtx, gty).getTile()));
+            if (changed == null) {
+                changed = new long[REGION_TILE_SIZE];
+            }
+            changed[lx] |= bit;
+        }
+        if (changed == null) {
+            return null;
+        }
+        this.lod.rebuild();
+        if (this.renderer != null) {
+            this.renderer.tilesChanged(changed);
+            this.renderer.lodChanged();
+        }
+        Minimap minimap = this.tileWorld.getMinimap();
+        if (minimap != null) {
+            minimap.regionChanged(this);
+        }
+        return changed;
+    }
+    
+    /**
+     * Notifies the world of tiles changed by
+     * {@link #applyEdit(TileEdit, int[], int, int)}, like
+     * {@link #setTile(Tile, int, int)} does for a single tile.
+     *
+     * @param changed the changed tiles as returned by applyEdit
+     */
+    void notifyTilesChanged(long[] changed) {
+        for (int i = 0; i < REGION_TILE_SIZE; i++) {
+            long bits = changed[i];
+            while (bits != 0) {
+                int j = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                this.tileWorld.tileChanged(this.tx + i, this.ty + j);
+            }
+        }
+    }
+    
+    private void addTileEntity(TileState state, TileEntity te) {
+        this.tileEntities.add(te);
+        state.setTileEntity(te);
+        if (te instanceof Tickable) {
+            this.tickables.add((Tickable) te);
+        }
+        if (te instanceof ScheduledTickable) {
+            scheduleTick(state, this.tileWorld.getGameTime());
+        }
     }
     
     public Tile getBackground(int tx, int ty) {
@@ -274,10 +454,57 @@ public class Region {
     }
     
     public void setTileBackground(Tile t, int tx, int ty) {
+        Region tickingRegion = this.tileWorld.getParallelTickRegion();
+        if (tickingRegion != null && tickingRegion != this) {
+            tickingRegion.deferWrite(t, tx, ty, true);
+            return;
+        }
         this.tilesBackground.set(new TileState(t, tx, ty), tx, ty);
+        queueRecacheBackground(tx, ty);
+        updateLod(tx, ty);
         if (t.hasLight()) {
             //addLight(t);
-            //queueRecacheLights();
+        }
+    }
+    
+    /**
+     * Takes over the tiles a generator wrote into a {@link GenerationBuffer} in
+     * a single pass. The replaced tiles are not looked at, so this is only meant
+     * for a region that is still empty: tile entities are created and lights
+     * are queued without any removal bookkeeping, and the tile caches and level
+     * of detail are rebuilt once instead of per tile.
+     *
+     * @param buffer the generated tiles of this region
+     */
+    public void ingest(GenerationBuffer buffer) {
+        for (int i = 0; i < REGION_TILE_SIZE; i++) {
+            for (int j = 0; j < REGION_TILE_SIZE; j++) {
+                int gtx = this.tx + i;
+                int gty = this.ty + j;
+                Tile t = buffer.byId(buffer.getLocal(false, i, j));
+                Tile back = buffer.byId(buffer.getLocal(true, i, j));
+                if (t != Tile.EMPTY) {
+                    TileState state = new TileState(t, gtx, gty);
+                    this.tiles.set(state, gtx, gty);
+                    if (t.hasTileEntity()) {
+                        addTileEntity(state, t.createTileEntity(tileWorld, state));
+                    }
+                    if (t.hasRandomTick()) {
+                        this.randomTickingTiles++;
+                    }
+                    if (t.hasLight()) {
+                        addLight(state);
+                    }
+                }
+                if (back != Tile.EMPTY) {
+                    this.tilesBackground.set(new TileState(back, gtx, gty), gtx, gty);
+                }
+                this.lod.set(i, j, lodColor(t, back));
+            }
+        }
+        this.lod.rebuild();
+        if (this.renderer != null) {
+            this.renderer.allChanged();
         }
     }
     
@@ -289,7 +516,6 @@ public class Region {
     private void addLight(TileState light) {
         this.lightBfsQueue.add(light);
         light.light().set(light.getTile().getLightColor());//This might cause issues if this method is used to add light to already existing tiles?
-        queueRecacheLights();
     }
     
     private void removeLight(TileState light) {
@@ -301,16 +527,243 @@ public class Region {
                 this.lightRemovalBfsQueue[i].add(node);
             }
         }
-        queueRecacheLights();
     }
     
-    public void tick(Time time) {
+    /**
+     * Ticks this region. The tickables are ticked until the budget is used up,
+     * the next call continues with the first one that has been skipped.
+     * Scheduled ticks, random ticks and fluids always run, also if the budget
+     * was already used up before this region.
+     *
+     * @param time   the time of this update
+     * @param budget the budget shared by all regions in this update
+     * @return whether all tickables have been ticked
+     */
+    public boolean tick(Time time, TickBudget budget) {
         this.ticking = true;
-        this.tickables.forEach((t) -> t.tick(time));
+        boolean finished = runTickables(time, budget);
+        runScheduledTicks(budget);
+        runRandomTicks(time);
+        if (this.fluids != null) {
+            this.fluids.update(time.deltaf);
+        }
         this.ticking = false;
         while (!tickablesForRemoval.isEmpty()) {
-            tickables.remove(tickablesForRemoval.poll());
+            removeTickable(tickablesForRemoval.poll());
+        }
+        return finished;
+    }
+    
+    //keeps the cursor on the tickable it pointed at, so none is skipped or ticked twice
+    private void removeTickable(Tickable tickable) {
+        int index = this.tickables.indexOf(tickable);
+        if (index < 0) {
+            return;
+        }
+        this.tickables.remove(index);
+        if (index < this.tickCursor) {
+            this.tickCursor--;
+        }
+    }
+    
+    /**
+     * Ticks this region in a phase of
+     * {@link TileWorld#tickParallel(Collection, Time)}, without a time budget.
+     *
+     * @param time the time of this update
+     */
+    void tickParallel(Time time) {
+        if (this.parallelBudget == null) {
+            this.parallelBudget = new TickBudget();
+            this.parallelBudget.setBudgetNanos(TickBudget.UNLIMITED);
+        }
+        tick(time, this.parallelBudget);
+    }
+    
+    void deferWrite(Tile t, int tx, int ty, boolean background) {
+        if (this.deferredWrites == null) {
+            this.deferredWrites = new PendingWrites();
+        }
+        this.deferredWrites.add(t, tx, ty, background);
+    }
+    
+    void deferTileChanged(int tx, int ty) {
+        if (this.deferredChanges == null) {
+            this.deferredChanges = new int[16];
+        } else if (this.deferredChangeCount + 2 > this.deferredChanges.length) {
+            this.deferredChanges = Arrays.copyOf(this.deferredChanges, this.deferredChanges.length * 2);
+        }
+        this.deferredChanges[this.deferredChangeCount++] = tx;
+        this.deferredChanges[this.deferredChangeCount++] = ty;
+    }
+    
+    void deferFluid(int tx, int ty, int amount) {
+        if (this.deferredFluids == null) {
+            this.deferredFluids = new int[24];
+        } else if (this.deferredFluidCount + 3 > this.deferredFluids.length) {
+            this.deferredFluids = Arrays.copyOf(this.deferredFluids, this.deferredFluids.length * 2);
+        }
+        this.deferredFluids[this.deferredFluidCount++] = tx;
+        this.deferredFluids[this.deferredFluidCount++] = ty;
+        this.deferredFluids[this.deferredFluidCount++] = amount;
+    }
+    
+    void deferScheduleTick(TileState state, float delay) {
+        if (this.deferredTicks == null) {
+            this.deferredTicks = new ArrayList<>();
+        }
+        double now = this.tileWorld.getGameTime();
+        this.deferredTicks.add(new ScheduledTick(state, now + Math.max(0, delay), now, 0));
+    }
+    
+    /**
+     * Applies the changes to other regions this region made while it was
+     * ticked in parallel, resolves the light of this region and of the regions
+     * it wrote to and adds the costs of its tickables to the budget of the
+     * world.
+     *
+     * @param budget the budget of the world
+     */
+    void applyDeferred(TickBudget budget) {
+        for (int i = 0; i < this.deferredChangeCount; i += 2) {
+            this.tileWorld.tileChanged(this.deferredChanges[i], this.deferredChanges[i + 1]);
+        }
+        this.deferredChangeCount = 0;
+        for (int i = 0; i < this.deferredFluidCount; i += 3) {
+            this.tileWorld.addFluid(this.deferredFluids[i], this.deferredFluids[i + 1], this.deferredFluids[i + 2]);
+        }
+        this.deferredFluidCount = 0;
+        if (this.deferredWrites != null && this.deferredWrites.size() > 0) {
+            //in write order, so the light is resolved the same way every run
+            Set<Region> touched = new LinkedHashSet<>();
+            this.deferredWrites.applyTo(this.tileWorld, touched);
+            this.deferredWrites.clear();
+            for (Region r : touched) {
+                r.resolveLights();
+            }
+        }
+        //light spreads into the neighbours, so the changes of the phase are only resolved now
+        resolveLights();
+        if (this.deferredTicks != null && !this.deferredTicks.isEmpty()) {
+            for (ScheduledTick tick : this.deferredTicks) {
+                this.tileWorld.scheduleTick(tick.state, (float) (tick.due - this.tileWorld.getGameTime()));
+            }
+            this.deferredTicks.clear();
+        }
+        if (this.parallelBudget != null) {
+            this.parallelBudget.moveCostsTo(budget);
+        }
+    }
+    
+    private boolean runTickables(Time time, TickBudget budget) {
+        //index based, tickables added while ticking must not break the iteration
+        int size = this.tickables.size();
+        if (this.tickCursor >= size) {
+            this.tickCursor = 0;
         }
+        int run = 0;
+        boolean finished = true;
+        for (; run < size; run++) {
+            if (budget.isExhausted()) {
+                finished = false;
+                break;
+            }
+            budget.tick(this.tickables.get(this.tickCursor), time);
+            this.tickCursor = (this.tickCursor + 1) % size;
+        }
+        TICKABLES_RUN.add(run);
+        return finished;
+    }
+    
+    /**
+     * Schedules a tick of the tile entity of a tile state of this region. If a
+     * tick is already pending for it, the earlier one is kept. A tick that
+     * replaces a pending one keeps its start time, so the elapsed time still
+     * counts from the last run.
+     *
+     * @param state the tile state
+     * @param due   the game time the tick is due at
+     */
+    void scheduleTick(TileState state, double due) {
+        ScheduledTick pending = this.scheduledByState.get(state);
+        double since = this.tileWorld.getGameTime();
+        if (pending != null) {
+            if (pending.due <= due) {
+                return;
+            }
+            pending.cancelled = true;
+            since = pending.since;
+        }
+        ScheduledTick tick = new ScheduledTick(state, due, since, this.scheduleOrder++);
+        this.scheduledTicks.add(tick);
+        this.scheduledByState.put(state, tick);
+    }
+    
+    private void cancelScheduledTick(TileState state) {
+        ScheduledTick pending = this.scheduledByState.remove(state);
+        if (pending != null) {
+            pending.cancelled = true;
+        }
+    }
+    
+    /**
+     * @return the amount of pending scheduled ticks
+     */
+    public int getScheduledTickCount() {
+        return this.scheduledByState.size();
+    }
+    
+    private void runScheduledTicks(TickBudget budget) {
+        double now = this.tileWorld.getGameTime();
+        //collect first, so ticks scheduled from inside a tick run in the next update at the earliest
+        while (!this.scheduledTicks.isEmpty() && this.scheduledTicks.peek().due <= now) {
+            ScheduledTick tick = this.scheduledTicks.poll();
+            if (!tick.cancelled) {
+                this.scheduledByState.remove(tick.state);
+                this.dueTicks.add(tick);
+            }
+        }
+        for (int i = 0; i < this.dueTicks.size(); i++) {
+            ScheduledTick tick = this.dueTicks.get(i);
+            TileState state = tick.state;
+            //an earlier tick of this update might have replaced the tile
+            if (getTileState(state.getGlobalTileX(), state.getGlobalTileY()) != state
+                    || !(state.getTileEntity() instanceof ScheduledTickable)) {
+                continue;
+            }
+            float next = budget.scheduledTick((ScheduledTickable) state.getTileEntity(),
+                    (float) (now - tick.since));
+            if (next >= 0) {
+                scheduleTick(state, now + next);
+            }
+        }
+        SCHEDULED_RUN.add(this.dueTicks.size());
+        this.dueTicks.clear();
+    }
+    
+    private void runRandomTicks(Time time) {
+        if (this.randomTickingTiles <= 0) {
+            this.randomTickBudget = 0;
+            return;
+        }
+        this.randomTickBudget += time.deltaf * this.tileWorld.getRandomTickRate();
+        if (this.randomTickBudget < 1) {
+            return;
+        }
+        if (this.random == null) {
+            this.random = new Random(Seeds.hash(0, this.rx, this.ry));
+        }
+        int count = 0;
+        while (this.randomTickBudget >= 1) {
+            this.randomTickBudget--;
+            TileState state = getTileState(this.tx + this.random.nextInt(REGION_TILE_SIZE),
+                    this.ty + this.random.nextInt(REGION_TILE_SIZE));
+            if (state.getTile().hasRandomTick()) {
+                state.getTile().randomTick(this.tileWorld, state, this.random);
+                count++;
+            }
+        }
+        RANDOM_RUN.add(count);
     }
     
     //    public void requestSunlightComputation() {
@@ -329,7 +782,6 @@ public class Region {
     //            //if r.sunlightPasses Check if sunlight can even pass that chunk, otherwise:
     //            r.requestSunlightComputation();
     //        }
-    //        queueRecacheLights();
     //    }
     
     //    private void propagateSunlight(boolean test) {
@@ -382,7 +834,6 @@ public class Region {
     //            }
     //            if (found) {
     //                this.sunlightBfsQueue.add(t);
-    //                queueNeighbouringLightRecaching(t);
     //            }
     //        }
     //    }
@@ -398,15 +849,16 @@ public class Region {
     //                } else {
     //                    this.sunlightBfsQueue.add(t);
     //                }
-    //                r.queueRecacheLights();
     //            }
     //        }
     //    }
     
-    private void resolveLights() {
+    void resolveLights() {
+        long nodes = 0;
         for (int i = 0; i < this.lightRemovalBfsQueue.length; i++) {
             while (!this.lightRemovalBfsQueue[i].isEmpty()) {
                 RemovalNode front = this.lightRemovalBfsQueue[i].poll();
+                nodes++;
                 int tx = front.t.getGlobalTileX();
                 int ty = front.t.getGlobalTileY();
                 if (this.tileWorld.inBounds(tx + 1, ty)) {
@@ -429,9 +881,10 @@ public class Region {
         }
         while (!this.lightBfsQueue.isEmpty()) {
             TileState front = this.lightBfsQueue.poll();
+            nodes++;
             int tx = front.getGlobalTileX();
             int ty = front.getGlobalTileY();
-            //Check if the light "front" is actually there (theoretically doesnt need to be done for "front" that comes from propagating) 
+            //Check if the light "front" is actually there (theoretically doesnt need to be done for "front" that comes from propagating)
             if (front != getTileStateGlobal(tx, ty)) {
                 continue;
             }
@@ -456,7 +909,9 @@ public class Region {
                 checkAddLightHelper(front, t);
             }
         }
-        
+        if (nodes > 0) {
+            LIGHT_NODES.record(nodes);
+        }
     }
     
     private void checkRemoveLightHelper(RemovalNode front, TileState t, int index) {
@@ -468,10 +923,8 @@ public class Region {
                 node.v = col.get(index);
                 t.light().set(index, 0);
                 this.lightRemovalBfsQueue[index].add(node);
-                queueNeighbouringLightRecaching(t);
             } else if (col.get(index) >= front.v) {
                 this.lightBfsQueue.add(t);
-                queueNeighbouringLightRecaching(t);
             }
         }
     }
@@ -487,86 +940,71 @@ public class Region {
             }
             if (found) {
                 this.lightBfsQueue.add(t);
-                queueNeighbouringLightRecaching(t);
             }
         }
     }
     
-    private void queueNeighbouringLightRecaching(TileState t) {
-        int c = Region.toGlobalRegion(t.getGlobalTileX());
-        int d = Region.toGlobalRegion(t.getGlobalTileY());
-        if (this.rx != c || this.ry != d) {
-            Region r = this.tileWorld.getRegion(c, d);
-            if (r != null) {
-                r.queueRecacheLights();
+    /**
+     * @return the fluid of this region, or null if it never had any
+     */
+    public FluidLayer getFluids() {
+        return this.fluids;
+    }
+    
+    public int getFluidLevel(int tx, int ty) {
+        return this.fluids == null ? 0 : this.fluids.getLevel(tx, ty);
+    }
+    
+    void addFluid(int tx, int ty, int amount) {
+        if (this.fluids == null) {
+            if (amount <= 0) {
+                return;
             }
+            this.fluids = new FluidLayer(this, this.tileWorld);
+        }
+        if (amount == 0) {
+            this.fluids.wake(tx, ty);
+        } else {
+            this.fluids.add(tx, ty, amount);
         }
     }
     
-    private void recacheLights() {
-        resolveLights();
-        //propagateSunlight(true);
-        //LOGGER.debug("Recaching lights: " + toString());
-        //this.lightOcvm.clear();
-        SimpleBatch2D PACKING_BATCH = null;//new SimpleBatch2D(this.lightOcvm);
-        PACKING_BATCH.begin();
-        Matrix3x2f tmpTransform = new Matrix3x2f();
-        List<TileState> tiles = new ArrayList<>();
-        Predicate<TileState> predicate = (t) -> t.light().maxRGB() >= 1 || t.sunlight().maxRGB() >= 1;
-        //background does not need to be recached all the time because it can not change (rn)
-        this.tilesBackground.getAll(tiles, predicate);
-        Texture tex = Omnikryptec.getTexturesS().get("light_2.png");
-        float mult = 3.11f;
-        for (TileState t : tiles) {
-            Color c = t.light();
-            float factor = 1 / Tile.MAX_LIGHT_VALUE;
-            PACKING_BATCH.color().set(c).add(t.sunlight());
-            PACKING_BATCH.color().mulRGB(factor);
-            tmpTransform.setTranslation(
-                    t.getGlobalTileX() * Tile.TILE_SIZE - mult / 2 * Tile.TILE_SIZE + 0.5f * Tile.TILE_SIZE,
-                    t.getGlobalTileY() * Tile.TILE_SIZE - mult / 2 * Tile.TILE_SIZE + 0.5f * Tile.TILE_SIZE);
-            PACKING_BATCH.draw(tex, tmpTransform, Tile.TILE_SIZE * mult, Tile.TILE_SIZE * mult, false, false);
-        }
-        tiles.clear();
-        this.tiles.getAll(tiles, predicate);
-        for (TileState t : tiles) {
-            float factor = 1 / Tile.MAX_LIGHT_VALUE;
-            PACKING_BATCH.color().set(t.light()).add(t.sunlight());
-            PACKING_BATCH.color().mulRGB(factor);
-            //tmpTransform.setTranslation(t.getGlobalTileX() * Tile.TILE_SIZE, t.getGlobalTileY() * Tile.TILE_SIZE);
-            tmpTransform.setTranslation(
-                    t.getGlobalTileX() * Tile.TILE_SIZE - mult / 2 * Tile.TILE_SIZE + 0.5f * Tile.TILE_SIZE,
-                    t.getGlobalTileY() * Tile.TILE_SIZE - mult / 2 * Tile.TILE_SIZE + 0.5f * Tile.TILE_SIZE);
-            PACKING_BATCH.draw(tex, tmpTransform, Tile.TILE_SIZE * mult, Tile.TILE_SIZE * mult, false, false);
-        }
-        PACKING_BATCH.end();
-    }
-    
-    private void recacheTiles() {
-        //LOGGER.debug("Recaching: " + toString());
-        InstancedBatch2D packingBatchActual = new InstancedBatch2D(true);
-        BorderedBatchAdapter packingBatch = new BorderedBatchAdapter(packingBatchActual);
-        packingBatch.begin();
-        Matrix3x2f tmpTransform = new Matrix3x2f();
-        tmpTransform.scale(Tile.TILE_SIZE);
-        List<TileState> tiles = new ArrayList<>();
-        Predicate<TileState> predicate = (t) -> t.getTile().color().getA() > 0;
-        //background does not need to be recached all the time because it can not change (rn)
-        this.tilesBackground.getAll(tiles, predicate);
-        for (TileState t : tiles) {
-            packingBatch.color().set(t.getTile().color());
-            packingBatch.color().mulRGB(BACKGROUND_FACTOR);
-            tmpTransform.setTranslation(t.getGlobalTileX() * Tile.TILE_SIZE, t.getGlobalTileY() * Tile.TILE_SIZE);
-            packingBatch.draw(t.getTile().getTexture(), tmpTransform);
-        }
-        tiles.clear();
-        this.tiles.getAll(tiles, predicate);
-        for (TileState t : tiles) {
-            packingBatch.color().set(t.getTile().color());
-            tmpTransform.setTranslation(t.getGlobalTileX() * Tile.TILE_SIZE, t.getGlobalTileY() * Tile.TILE_SIZE);
-            packingBatch.draw(t.getTile().getTexture(), tmpTransform);
-        }
-        tileCache = packingBatchActual.flushWithOptionalCache();
+    /**
+     * Marks a neighbour update of a tile as queued.
+     *
+     * @param tx   global tile x
+     * @param ty   global tile y
+     * @param side the side of the changed neighbour
+     * @return false if it already was queued
+     */
+    boolean markNeighbourUpdate(int tx, int ty, int side) {
+        if (this.queuedNeighbourUpdates == null) {
+            this.queuedNeighbourUpdates = new long[REGION_TILE_SIZE * REGION_TILE_SIZE * 4 / 64];
+        }
+        int bit = neighbourUpdateBit(tx, ty, side);
+        long mask = 1L << bit;
+        if ((this.queuedNeighbourUpdates[bit >>> 6] & mask) != 0) {
+            return false;
+        }
+        this.queuedNeighbourUpdates[bit >>> 6] |= mask;
+        return true;
+    }
+    
+    void clearNeighbourUpdate(int tx, int ty, int side) {
+        int bit = neighbourUpdateBit(tx, ty, side);
+        this.queuedNeighbourUpdates[bit >>> 6] &= ~(1L << bit);
+    }
+    
+    private int neighbourUpdateBit(int tx, int ty, int side) {
+        return ((tx - this.tx) * REGION_TILE_SIZE + ty - this.ty) << 2 | side;
+    }
+    
+    TileStorage getTileStorage() {
+        return this.tiles;
+    }
+    
+    TileStorage getBackgroundStorage() {
+        return this.tilesBackground;
     }
     
     @Override
@@ -1,7 +1,9 @@
 package de.pcfreak9000.space.tileworld;
 
 /**
- * Generates regions of a TileWorld.
+ * Generates regions of a TileWorld. Generators should fill a
+ * {@link GenerationBuffer} and hand it to {@link Region#ingest(GenerationBuffer)}
+ * instead of setting every tile on its own.
  *
  * @author pcfreak9000
  *
@@ -0,0 +1,148 @@
+package de.pcfreak9000.space.tileworld;
+
+/**
+ * Downsampled colour summaries of a {@link Region}. Level 0 holds one packed
+ * ARGB colour per tile, every following level halves the resolution up to
+ * {@link #MAX_LEVEL}. A tile change only updates the cells covering that tile
+ * on each level.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class RegionLod {
+    
+    public static final int MAX_LEVEL = 3;
+    
+    /**
+     * Picks the level of detail for a zoom factor, i.e. world units per default
+     * camera unit. Full resolution is used until a tile would be smaller than
+     * a few pixels.
+     *
+     * @param zoom the zoom factor of the camera
+     * @return the level to draw with, 0 is full resolution
+     */
+    public static int levelForZoom(float zoom) {
+        if (zoom < 4) {
+            return 0;
+        }
+        int log = 31 - Integer.numberOfLeadingZeros((int) zoom);
+        return Math.min(MAX_LEVEL, log - 1);
+    }
+    
+    private final int[][] levels;
+    
+    public RegionLod() {
+        this.levels = new int[MAX_LEVEL + 1][];
+        for (int l = 0; l <= MAX_LEVEL; l++) {
+            int size = getSize(l);
+            this.levels[l] = new int[size * size];
+        }
+    }
+    
+    /**
+     * Sets the colour of a tile and updates all coarser levels above it.
+     *
+     * @param localX tile x inside the region
+     * @param localY tile y inside the region
+     * @param argb   the packed colour of the tile
+     * @return whether anything changed
+     */
+    public boolean update(int localX, int localY, int argb) {
+        int size = getSize(0);
+        if (this.levels[0][localX * size + localY] == argb) {
+            return false;
+        }
+        this.levels[0][localX * size + localY] = argb;
+        for (int l = 1; l <= MAX_LEVEL; l++) {
+            localX >>= 1;
+            localY >>= 1;
+            int[] fine = this.levels[l - 1];
+            int fineSize = getSize(l - 1);
+            int x = localX * 2;
+            int y = localY * 2;
+            this.levels[l][localX * getSize(l) + localY] = average(fine[x * fineSize + y], fine[(x + 1) * fineSize + y],
+                    fine[x * fineSize + y + 1], fine[(x + 1) * fineSize + y + 1]);
+        }
+        return true;
+    }
+    
+    /**
+     * Sets the colour of a tile without touching the coarser levels. Call
+     * {@link #rebuild()} after setting many tiles at once.
+     *
+     * @param localX tile x inside the region
+     * @param localY tile y inside the region
+     * @param argb   the packed colour of the tile
+     */
+    void set(int localX, int localY, int argb) {
+        this.levels[0][localX * getSize(0) + localY] = argb;
+    }
+    
+    /**
+     * Recomputes all coarser levels from level 0, one pass per level.
+     */
+    void rebuild() {
+        for (int l = 1; l <= MAX_LEVEL; l++) {
+            int[] fine = this.levels[l - 1];
+            int fineSize = getSize(l - 1);
+            int size = getSize(l);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int x = i * 2;
+                    int y = j * 2;
+                    this.levels[l][i * size + j] = average(fine[x * fineSize + y], fine[(x + 1) * fineSize + y],
+                            fine[x * fineSize + y + 1], fine[(x + 1) * fineSize + y + 1]);
+                }
+            }
+        }
+    }
+    
+    long estimateBytes() {
+        long bytes = RegionMemory.object(RegionMemory.REFERENCE)
+                + RegionMemory.array(this.levels.length, RegionMemory.REFERENCE);
+        for (int[] level : this.levels) {
+            bytes += RegionMemory.array(level.length, 4);
+        }
+        return bytes;
+    }
+    
+    public int get(int level, int x, int y) {
+        return this.levels[level][x * getSize(level) + y];
+    }
+    
+    /**
+     * The amount of cells per side of the given level.
+     *
+     * @param level the level
+     * @return cells per side
+     */
+    public static int getSize(int level) {
+        return Region.REGION_TILE_SIZE >> level;
+    }
+    
+    public static int pack(float r, float g, float b, float a) {
+        return (toByte(a) << 24) | (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+    }
+    
+    public static int multiply(int argb, float r, float g, float b, float a) {
+        return pack(r * channel(argb, 16), g * channel(argb, 8), b * channel(argb, 0), a * channel(argb, 24));
+    }
+    
+    public static float channel(int argb, int shift) {
+        return ((argb >>> shift) & 0xFF) / 255f;
+    }
+    
+    private static int toByte(float f) {
+        return Math.round(Math.min(Math.max(f, 0), 1) * 255);
+    }
+    
+    private static int average(int c0, int c1, int c2, int c3) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((c0 >>> shift) & 0xFF) + ((c1 >>> shift) & 0xFF) + ((c2 >>> shift) & 0xFF)
+                    + ((c3 >>> shift) & 0xFF);
+            result |= (sum >> 2) << shift;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Locale;
+
+/**
+ * Estimated heap usage of a {@link Region}, split by what the memory is used
+ * for, or the sum of many regions. The estimates are computed from the object
+ * layout of a 64 bit JVM with compressed references (12 byte object headers,
+ * 4 byte references, 8 byte alignment), which is the default for heaps below
+ * 32 GiB. Without compressed references, expect about 20% more.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class RegionMemory {
+    
+    public static enum Part {
+        /** The foreground tile states and their arrays */
+        TILES,
+        /** The background tile states and their arrays */
+        BACKGROUND,
+        /** The light colours of all tile states */
+        LIGHT,
+        /** Tile entities and the lists referencing them */
+        TILE_ENTITIES,
+        /** The level of detail colours */
+        LOD,
+        /** The fluid levels and the active cells, if any */
+        FLUIDS,
+        /** The cached tile instances of the renderer, if any */
+        RENDER_CACHE,
+        /** Pending light updates, scheduled ticks and tickable removals */
+        QUEUES;
+    }
+    
+    static final int HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+    
+    /** The omnikryptec colour holds four floats */
+    static final long COLOR = object(4 * 4);
+    /** Two ints, four references and a boolean */
+    static final long TILE_STATE = object(2 * 4 + 4 * REFERENCE + 1);
+    /** A tile entity without any state of its own */
+    static final long TILE_ENTITY = object(0);
+    
+    /**
+     * @param fieldBytes the summed size of all fields
+     * @return the size of an object with these fields
+     */
+    static long object(long fieldBytes) {
+        return align(HEADER + fieldBytes);
+    }
+    
+    /**
+     * @param length       the length of the array
+     * @param elementBytes the size of one element
+     * @return the size of the array
+     */
+    static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+    
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+    
+    private final int rx;
+    private final int ry;
+    private final long[] bytes = new long[Part.values().length];
+    private int regions = 0;
+    
+    RegionMemory(int rx, int ry) {
+        this.rx = rx;
+        this.ry = ry;
+        this.regions = 1;
+    }
+    
+    /**
+     * Creates an empty sum, see {@link #add(RegionMemory)}.
+     */
+    public RegionMemory() {
+        this.rx = -1;
+        this.ry = -1;
+    }
+    
+    void add(Part part, long b) {
+        this.bytes[part.ordinal()] += b;
+    }
+    
+    /**
+     * Adds the estimate of another region to this one.
+     *
+     * @param other the other estimate
+     */
+    public void add(RegionMemory other) {
+        for (int i = 0; i < this.bytes.length; i++) {
+            this.bytes[i] += other.bytes[i];
+        }
+        this.regions += other.regions;
+    }
+    
+    public long get(Part part) {
+        return this.bytes[part.ordinal()];
+    }
+    
+    public long getTotal() {
+        long total = 0;
+        for (long b : this.bytes) {
+            total += b;
+        }
+        return total;
+    }
+    
+    /**
+     * @return the amount of regions in this estimate
+     */
+    public int getRegionCount() {
+        return this.regions;
+    }
+    
+    /**
+     * @return the region x, or -1 if this is a sum
+     */
+    public int getGlobalRegionX() {
+        return this.rx;
+    }
+    
+    /**
+     * @return the region y, or -1 if this is a sum
+     */
+    public int getGlobalRegionY() {
+        return this.ry;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        if (this.rx >= 0) {
+            b.append(String.format(Locale.ROOT, "Region (%d, %d): ", this.rx, this.ry));
+        } else {
+            b.append(String.format(Locale.ROOT, "%d regions: ", this.regions));
+        }
+        b.append(kib(getTotal())).append(" KiB (");
+        for (Part p : Part.values()) {
+            if (p.ordinal() > 0) {
+                b.append(", ");
+            }
+            b.append(p.name().toLowerCase(Locale.ROOT)).append(' ').append(kib(get(p)));
+        }
+        return b.append(')').toString();
+    }
+    
+    private static String kib(long bytes) {
+        return String.format(Locale.ROOT, "%.1f", bytes / 1024.0);
+    }
+}
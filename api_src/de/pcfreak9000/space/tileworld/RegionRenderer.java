@@ -0,0 +1,139 @@
+package de.pcfreak9000.space.tileworld;
+
+import org.joml.FrustumIntersection;
+
+import de.omnikryptec.render3.d2.instanced.InstancedBatch2D;
+import de.omnikryptec.render3.d2.sprites.Sprite;
+import de.pcfreak9000.space.tileworld.ecs.RenderComponent;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * The render state of a {@link Region}: its tile caches, level of detail and
+ * sprite. Only created when a region is actually drawn, see
+ * {@link Region#getRenderer()}, so regions of a headless simulation never touch
+ * any rendering classes.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class RegionRenderer {
+    
+    private static final boolean DEBUG_SHOW_BORDERS = false;
+    
+    private final Region region;
+    private final RegionTileCache tileCache;
+    private final RenderComponent renderComponent;
+    private int lodLevel = 0;
+    
+    RegionRenderer(Region region, InstanceBufferPool pool) {
+        this.region = region;
+        this.tileCache = new RegionTileCache(region, pool);
+        for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+            for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                int gtx = region.getGlobalTileX() + i;
+                int gty = region.getGlobalTileY() + j;
+                this.tileCache.updateOcclusion(region.getTile(gtx, gty), gtx, gty);
+            }
+        }
+        this.tileCache.markAllDirty();
+        this.renderComponent = new RenderComponent(new Sprite() {
+            
+            
+            @Override
+            public void draw() {
+                if (lodLevel > 0) {
+                    tileCache.drawLod(InstancedBatch2D.DEFAULT_BATCH, region.getLod(), lodLevel);
+                } else {
+                    tileCache.recache();
+                    tileCache.draw(InstancedBatch2D.DEFAULT_BATCH);
+                }
+                if (DEBUG_SHOW_BORDERS) {
+                    //                    batch.color().set(1, 0, 0, 1);
+                    //                    float left = region.getGlobalTileX() * Tile.TILE_SIZE;
+                    //                    float right = left + Region.REGION_TILE_SIZE * Tile.TILE_SIZE;
+                    //                    float top = region.getGlobalTileY() * Tile.TILE_SIZE;
+                    //                    float bot = top + Region.REGION_TILE_SIZE * Tile.TILE_SIZE;
+                    //                    batch.drawLine(left, bot, left, top, 2);
+                    //                    batch.drawLine(left, bot, right, bot, 2);
+                    //                    batch.drawLine(right, top, left, top, 2);
+                    //                    batch.drawLine(right, top, right, bot, 2);
+                    //                    batch.color().setAll(1);
+                }
+            }
+            
+            @Override
+            public boolean isVisible(FrustumIntersection frustum) {
+                return frustum.testAab(region.getGlobalTileX() * Tile.TILE_SIZE,
+                        region.getGlobalTileY() * Tile.TILE_SIZE, 0,
+                        (region.getGlobalTileX() + Region.REGION_TILE_SIZE) * Tile.TILE_SIZE,
+                        (region.getGlobalTileY() + Region.REGION_TILE_SIZE) * Tile.TILE_SIZE, 0);
+                
+            }
+        });
+    }
+    
+    RenderComponent getRenderComponent() {
+        return this.renderComponent;
+    }
+    
+    void tileChanged(Tile t, int tx, int ty) {
+        this.tileCache.updateOcclusion(t, tx, ty);
+        this.tileCache.markForegroundDirty(tx, ty);
+    }
+    
+    void tilesChanged(long[] changed) {
+        for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+            long bits = changed[i];
+            while (bits != 0) {
+                int gtx = this.region.getGlobalTileX() + i;
+                int gty = this.region.getGlobalTileY() + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                tileChanged(this.region.getTile(gtx, gty), gtx, gty);
+            }
+        }
+    }
+    
+    void backgroundChanged(int tx, int ty) {
+        this.tileCache.markBackgroundDirty(tx, ty);
+    }
+    
+    void lodChanged() {
+        this.tileCache.markLodDirty();
+    }
+    
+    void allChanged() {
+        for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+            for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                int gtx = this.region.getGlobalTileX() + i;
+                int gty = this.region.getGlobalTileY() + j;
+                this.tileCache.updateOcclusion(this.region.getTile(gtx, gty), gtx, gty);
+            }
+        }
+        this.tileCache.markAllDirty();
+    }
+    
+    /**
+     * Frees the cached tile instances of the region. They are rebuilt when the
+     * region is drawn again.
+     */
+    public void releaseTileCache() {
+        this.tileCache.release();
+    }
+    
+    public int getCachedInstanceCount() {
+        return this.tileCache.getInstanceCount();
+    }
+    
+    long estimateBytes() {
+        return this.tileCache.estimateBytes();
+    }
+    
+    /**
+     * Sets the level of detail the region is drawn with.
+     *
+     * @param level 0 for single tiles, up to {@link RegionLod#MAX_LEVEL}
+     */
+    public void setLodLevel(int level) {
+        this.lodLevel = level;
+    }
+}
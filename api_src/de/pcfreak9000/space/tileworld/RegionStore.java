@@ -0,0 +1,147 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Directory of persisted regions, one file per region. A file holds the
+ * generated tiles of a region as written by a {@link GenerationBuffer}: a
+ * palette of registered tile names followed by the foreground and background
+ * ids of every tile, gzip compressed. Different regions can be read and
+ * written from different threads.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class RegionStore {
+    
+    private static final int MAGIC = 0x53453252;//SE2R
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".se2r";
+    
+    private final Path directory;
+    
+    public RegionStore(Path directory) {
+        this.directory = directory;
+    }
+    
+    public Path getDirectory() {
+        return this.directory;
+    }
+    
+    public Path getFile(int rx, int ry) {
+        return this.directory.resolve("r." + rx + "." + ry + EXTENSION);
+    }
+    
+    public boolean has(int rx, int ry) {
+        return Files.isRegularFile(getFile(rx, ry));
+    }
+    
+    /**
+     * Writes a buffer to the file of its region. The file is replaced
+     * atomically, so a crash never leaves a partially written region behind.
+     *
+     * @param buffer the generated tiles
+     * @throws IOException if writing fails
+     */
+    public void write(GenerationBuffer buffer) throws IOException {
+        Files.createDirectories(this.directory);
+        Path file = getFile(buffer.getGlobalRegionX(), buffer.getGlobalRegionY());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            write(buffer, out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * @param rx region x
+     * @param ry region y
+     * @return the persisted tiles of that region, or null if there are none
+     * @throws IOException if the file can not be read
+     */
+    public GenerationBuffer read(int rx, int ry) throws IOException {
+        Path file = getFile(rx, ry);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, rx, ry);
+        }
+    }
+    
+    public static void write(GenerationBuffer buffer, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(buffer.getGlobalRegionX());
+        data.writeInt(buffer.getGlobalRegionY());
+        //id 0 is always the empty tile and not written
+        data.writeShort(buffer.getPaletteSize() - 1);
+        for (int i = 1; i < buffer.getPaletteSize(); i++) {
+            data.writeUTF(GameRegistry.TILE_REGISTRY.getName(buffer.byId(i)));
+        }
+        for (int layer = 0; layer < 2; layer++) {
+            for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                    data.writeShort(buffer.getLocal(layer == 1, i, j));
+                }
+            }
+        }
+        data.flush();
+        gzip.finish();
+    }
+    
+    public static GenerationBuffer read(InputStream in, int rx, int ry) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a region file");
+        }
+        int version = data.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported region file version: " + version);
+        }
+        int fileRx = data.readInt();
+        int fileRy = data.readInt();
+        if (fileRx != rx || fileRy != ry) {
+            throw new IOException(String.format("Region file of (%d, %d) found for (%d, %d)", fileRx, fileRy, rx, ry));
+        }
+        GenerationBuffer buffer = new GenerationBuffer(rx, ry);
+        int paletteSize = data.readShort() + 1;
+        int[] ids = new int[paletteSize];
+        for (int i = 1; i < paletteSize; i++) {
+            String name = data.readUTF();
+            if (!GameRegistry.TILE_REGISTRY.isRegistered(name)) {
+                throw new IOException("Unknown tile in region file: " + name);
+            }
+            Tile t = GameRegistry.TILE_REGISTRY.get(name);
+            ids[i] = buffer.idOf(t);
+        }
+        for (int layer = 0; layer < 2; layer++) {
+            for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                    int id = data.readShort();
+                    if (id < 0 || id >= paletteSize) {
+                        throw new IOException("Corrupted region file, tile id out of range: " + id);
+                    }
+                    buffer.setLocal(layer == 1, i, j, ids[id]);
+                }
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,346 @@
+package de.pcfreak9000.space.tileworld;
+
+import org.joml.Matrix3x2f;
+
+import de.omnikryptec.libapi.exposed.render.Texture;
+import de.omnikryptec.render3.d2.BatchCache;
+import de.omnikryptec.render3.d2.compat.BorderedBatchAdapter;
+import de.omnikryptec.render3.d2.instanced.InstancedBatch2D;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.tileworld.tile.TileAtlas;
+import de.pcfreak9000.space.util.metrics.Histogram;
+import de.pcfreak9000.space.util.metrics.Metrics;
+
+/**
+ * The cached tile instances of a {@link Region}. The region is split into
+ * sections of {@link #SECTION_TILE_SIZE}x{@link #SECTION_TILE_SIZE} tiles with
+ * a fixed cache slot each, so a tile change only rebuilds the section it is in
+ * instead of the whole region. Background and foreground are cached
+ * separately, the background is usually only built once. Background tiles
+ * behind an opaque foreground tile are not cached at all and runs of identical
+ * tiles are merged into single instances. The instances of a section are
+ * sorted by texture with a {@link SectionPlan}, single tiles from the atlas
+ * first, so the section binds every texture only once.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class RegionTileCache {
+    
+    public static final int SECTION_TILE_SIZE = 16;
+    
+    private static final int SECTIONS = Region.REGION_TILE_SIZE / SECTION_TILE_SIZE;
+    
+    private static final long ALL_SECTIONS = SECTIONS * SECTIONS == 64 ? -1L : (1L << (SECTIONS * SECTIONS)) - 1;
+    
+    private static final Histogram RECACHE = Metrics.histogram("region.recache");
+    
+    static final float BACKGROUND_FACTOR = 0.5f;
+    
+    //transform, colour and uv rectangle of one cached instance, as floats
+    static final int INSTANCE_BYTES = (6 + 4 + 4) * 4;
+    
+    private final Region region;
+    
+    private final InstanceBufferPool pool;
+    
+    private final BatchCache[] backgroundCaches;
+    private final BatchCache[] foregroundCaches;
+    private final int[] backgroundInstances;
+    private final int[] foregroundInstances;
+    
+    //one bit per section
+    private long dirtyBackground;
+    private long dirtyForeground;
+    
+    //one long per tile column, set bits mark background tiles hidden by the foreground
+    private final long[] occluded;
+    
+    private static boolean greedyMerging = true;
+    
+    /**
+     * Enables or disables merging of adjacent, identical looking tiles into
+     * rectangles that are drawn as a single instance. Runs of tiles in the atlas
+     * are only merged if they are large enough to be worth their own texture
+     * bind, see {@link SectionPlan}. Only affects sections that are recached
+     * afterwards.
+     *
+     * @param b merge tiles
+     */
+    public static void setGreedyMerging(boolean b) {
+        greedyMerging = b;
+    }
+    
+    private final Matrix3x2f tmpTransform = new Matrix3x2f();
+    private int emittedInstances;
+    
+    private BatchCache lodCache;
+    private int lodCacheLevel = 0;
+    private int lodInstances = 0;
+    private boolean lodDirty = true;
+    
+    public RegionTileCache(Region region, InstanceBufferPool pool) {
+        this.region = region;
+        this.pool = pool;
+        this.backgroundCaches = new BatchCache[SECTIONS * SECTIONS];
+        this.foregroundCaches = new BatchCache[SECTIONS * SECTIONS];
+        this.backgroundInstances = new int[SECTIONS * SECTIONS];
+        this.foregroundInstances = new int[SECTIONS * SECTIONS];
+        this.dirtyBackground = ALL_SECTIONS;
+        this.dirtyForeground = ALL_SECTIONS;
+        this.occluded = new long[Region.REGION_TILE_SIZE];
+    }
+    
+    /**
+     * Updates the background occlusion of a tile position after its foreground
+     * tile has changed. The background section is only recached if the
+     * occlusion actually changes.
+     *
+     * @param foreground the new foreground tile
+     * @param gtx        global tile x
+     * @param gty        global tile y
+     */
+    public void updateOcclusion(Tile foreground, int gtx, int gty) {
+        int x = gtx - this.region.getGlobalTileX();
+        int y = gty - this.region.getGlobalTileY();
+        long bit = 1L << y;
+        boolean before = (this.occluded[x] & bit) != 0;
+        boolean now = foreground.isOpaque() && foreground.color().getA() >= 1;
+        if (before != now) {
+            this.occluded[x] ^= bit;
+            this.dirtyBackground |= sectionBit(x, y);
+        }
+    }
+    
+    public void markForegroundDirty(int gtx, int gty) {
+        this.dirtyForeground |= sectionBit(gtx - this.region.getGlobalTileX(), gty - this.region.getGlobalTileY());
+    }
+    
+    public void markBackgroundDirty(int gtx, int gty) {
+        this.dirtyBackground |= sectionBit(gtx - this.region.getGlobalTileX(), gty - this.region.getGlobalTileY());
+    }
+    
+    public void markLodDirty() {
+        this.lodDirty = true;
+    }
+    
+    public void markAllDirty() {
+        this.dirtyBackground = ALL_SECTIONS;
+        this.dirtyForeground = ALL_SECTIONS;
+        this.lodDirty = true;
+    }
+    
+    public boolean isDirty() {
+        return this.dirtyBackground != 0 || this.dirtyForeground != 0;
+    }
+    
+    public void recache() {
+        if (!isDirty()) {
+            return;
+        }
+        long start = Metrics.start();
+        if (this.dirtyBackground != 0) {
+            recacheSections(this.backgroundCaches, this.backgroundInstances, this.dirtyBackground, true);
+            this.dirtyBackground = 0;
+        }
+        if (this.dirtyForeground != 0) {
+            recacheSections(this.foregroundCaches, this.foregroundInstances, this.dirtyForeground, false);
+            this.dirtyForeground = 0;
+        }
+        RECACHE.recordSince(start);
+    }
+    
+    public void draw(InstancedBatch2D batch) {
+        draw(batch, this.backgroundCaches);
+        draw(batch, this.foregroundCaches);
+    }
+    
+    /**
+     * Draws the downsampled summary of the region instead of the single tiles.
+     *
+     * @param batch the batch
+     * @param lod   the colour summary of the region
+     * @param level the level of detail, must be at least 1
+     */
+    public void drawLod(InstancedBatch2D batch, RegionLod lod, int level) {
+        if (this.lodDirty || this.lodCacheLevel != level) {
+            this.lodCache = recacheLod(lod, level);
+            this.lodCacheLevel = level;
+            this.lodDirty = false;
+            this.pool.addCachedInstances(this.emittedInstances - this.lodInstances);
+            this.lodInstances = this.emittedInstances;
+        }
+        if (this.lodCache != null) {
+            batch.put(this.lodCache);
+        }
+    }
+    
+    private void draw(InstancedBatch2D batch, BatchCache[] caches) {
+        for (BatchCache cache : caches) {
+            if (cache != null) {
+                batch.put(cache);
+            }
+        }
+    }
+    
+    /**
+     * Drops all cached instances, e.g. when the region is unloaded. The next
+     * {@link #recache()} rebuilds everything.
+     */
+    public void release() {
+        release(this.backgroundCaches, this.backgroundInstances);
+        release(this.foregroundCaches, this.foregroundInstances);
+        this.pool.addCachedInstances(-this.lodInstances);
+        this.lodInstances = 0;
+        this.lodCache = null;
+        markAllDirty();
+    }
+    
+    public int getInstanceCount() {
+        int count = 0;
+        for (int s = 0; s < SECTIONS * SECTIONS; s++) {
+            count += this.backgroundInstances[s] + this.foregroundInstances[s];
+        }
+        return count + this.lodInstances;
+    }
+    
+    /**
+     * @return the estimated size of the cached instances and the bookkeeping of
+     *         this cache
+     */
+    long estimateBytes() {
+        int sections = SECTIONS * SECTIONS;
+        long bytes = 2 * RegionMemory.array(sections, RegionMemory.REFERENCE) + 2 * RegionMemory.array(sections, 4)
+                + RegionMemory.array(this.occluded.length, 8);
+        return bytes + (long) getInstanceCount() * INSTANCE_BYTES;
+    }
+    
+    private void release(BatchCache[] caches, int[] instances) {
+        for (int s = 0; s < caches.length; s++) {
+            this.pool.addCachedInstances(-instances[s]);
+            instances[s] = 0;
+            caches[s] = null;
+        }
+    }
+    
+    private void recacheSections(BatchCache[] caches, int[] instances, long dirty, boolean background) {
+        for (int s = 0; s < caches.length; s++) {
+            if ((dirty & (1L << s)) != 0) {
+                caches[s] = recacheSection(s / SECTIONS, s % SECTIONS, background);
+                this.pool.addCachedInstances(this.emittedInstances - instances[s]);
+                instances[s] = this.emittedInstances;
+            }
+        }
+    }
+    
+    private BatchCache recacheSection(int sx, int sy, boolean background) {
+        int xStart = this.region.getGlobalTileX() + sx * SECTION_TILE_SIZE;
+        int yStart = this.region.getGlobalTileY() + sy * SECTION_TILE_SIZE;
+        SectionPlan plan = this.pool.getSectionPlan();
+        int count = 0;
+        this.emittedInstances = 0;
+        for (int i = 0; i < SECTION_TILE_SIZE; i++) {
+            for (int j = 0; j < SECTION_TILE_SIZE; j++) {
+                Tile t = null;
+                if (!background || !isOccluded(xStart + i, yStart + j)) {
+                    t = background ? this.region.getBackground(xStart + i, yStart + j)
+                            : this.region.getTile(xStart + i, yStart + j);
+                    if (t.color().getA() <= 0) {
+                        t = null;
+                    } else {
+                        count++;
+                    }
+                }
+                if (t != null) {
+                    TileAtlas.UVRect rect = t.getAtlasRect();
+                    plan.set(i, j, t, rect == null ? null : rect.texture, t.getTexture());
+                } else {
+                    plan.set(i, j, null, null, null);
+                }
+            }
+        }
+        //Most sections of the sky are empty, don't create a batch for those
+        if (count == 0) {
+            return null;
+        }
+        int rects = plan.plan(greedyMerging);
+        InstanceBufferPool.Buffer buffer = this.pool.lease();
+        BorderedBatchAdapter packingBatch = buffer.begin();
+        for (int r = 0; r < rects; r++) {
+            int i = plan.getX(r);
+            int j = plan.getY(r);
+            Tile t = plan.getTile(r);
+            packingBatch.color().set(t.color());
+            if (background) {
+                packingBatch.color().mulRGB(BACKGROUND_FACTOR);
+            }
+            drawTiles(packingBatch, t, plan.isInAtlas(r), xStart + i, yStart + j, plan.getWidth(r),
+                    plan.getHeight(r));
+            this.emittedInstances++;
+        }
+        BatchCache cache = buffer.flush();
+        this.pool.release(buffer);
+        return cache;
+    }
+    
+    private BatchCache recacheLod(RegionLod lod, int level) {
+        this.emittedInstances = 0;
+        int size = RegionLod.getSize(level);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if ((lod.get(level, i, j) >>> 24) != 0) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        float cellSize = (1 << level) * Tile.TILE_SIZE;
+        InstanceBufferPool.Buffer buffer = this.pool.lease();
+        BorderedBatchAdapter packingBatch = buffer.begin();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int argb = lod.get(level, i, j);
+                if ((argb >>> 24) == 0) {
+                    continue;
+                }
+                packingBatch.color().set(RegionLod.channel(argb, 16), RegionLod.channel(argb, 8),
+                        RegionLod.channel(argb, 0), RegionLod.channel(argb, 24));
+                this.tmpTransform.scaling(cellSize);
+                this.tmpTransform.setTranslation(this.region.getGlobalTileX() * Tile.TILE_SIZE + i * cellSize,
+                        this.region.getGlobalTileY() * Tile.TILE_SIZE + j * cellSize);
+                //untextured, the colour already contains the average texture colour
+                packingBatch.draw((Texture) null, this.tmpTransform);
+                this.emittedInstances++;
+            }
+        }
+        BatchCache cache = buffer.flush();
+        this.pool.release(buffer);
+        return cache;
+    }
+    
+    private void drawTiles(BorderedBatchAdapter batch, Tile t, boolean inAtlas, int gtx, int gty, int w, int h) {
+        this.tmpTransform.scaling(w * Tile.TILE_SIZE, h * Tile.TILE_SIZE);
+        this.tmpTransform.setTranslation(gtx * Tile.TILE_SIZE, gty * Tile.TILE_SIZE);
+        if (inAtlas) {
+            TileAtlas.UVRect rect = t.getAtlasRect();
+            batch.draw(rect.texture, this.tmpTransform, rect.u0, rect.v0, rect.u1, rect.v1);
+        } else if (w == 1 && h == 1) {
+            batch.draw(t.getTexture(), this.tmpTransform);
+        } else {
+            //repeat the texture over the run instead of stretching it. UVs can't wrap inside the atlas,
+            //so runs use the tile's own texture
+            batch.draw(t.getTexture(), this.tmpTransform, 0, 0, w, h);
+        }
+    }
+    
+    private boolean isOccluded(int gtx, int gty) {
+        return (this.occluded[gtx - this.region.getGlobalTileX()] & (1L << (gty - this.region.getGlobalTileY()))) != 0;
+    }
+    
+    private static long sectionBit(int localX, int localY) {
+        return 1L << ((localX / SECTION_TILE_SIZE) * SECTIONS + localY / SECTION_TILE_SIZE);
+    }
+}
@@ -0,0 +1,262 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+
+import de.omnikryptec.util.data.Color;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * The rectangles a section of a {@link RegionTileCache} is drawn as, in the
+ * order they are drawn. Tiles drawn from the
+ * {@link de.pcfreak9000.space.tileworld.tile.TileAtlas} come first, followed by
+ * everything that needs its own texture, and the rectangles are grouped by the
+ * texture they bind. A section therefore binds every texture at most once, no
+ * matter how its tiles are laid out.<br>
+ * Runs of identical looking tiles are merged into one rectangle if merging is
+ * enabled. A merged run repeats the texture of its tile, which can't be done
+ * inside of the atlas, so it is drawn with the tile's own texture. That is an
+ * extra bind for a tile that is in the atlas, so its runs are only merged if
+ * they cover at least {@link #MIN_ATLAS_RUN} tiles, smaller ones stay single
+ * tiles in the atlas.<br>
+ * Textures are only compared by identity, so they are passed in as plain
+ * objects and the plan can be checked without a rendering context.
+ *
+ * @author pcfreak9000
+ *
+ */
+final class SectionPlan {
+    
+    static final int MIN_ATLAS_RUN = 4;
+    
+    private final int size;
+    
+    private final Tile[] tiles;
+    private final Object[] atlasTextures;
+    private final Object[] textures;
+    
+    //x, y, width and height of every rectangle in draw order
+    private final int[] rects;
+    private final Tile[] rectTiles;
+    private final Object[] binds;
+    private final boolean[] inAtlas;
+    private int count;
+    
+    //scratch space while planning
+    private final int[] planned;
+    private final Tile[] plannedTiles;
+    private final Object[] groups;
+    
+    SectionPlan(int size) {
+        this.size = size;
+        int cells = size * size;
+        this.tiles = new Tile[cells];
+        this.atlasTextures = new Object[cells];
+        this.textures = new Object[cells];
+        this.rects = new int[cells * 4];
+        this.rectTiles = new Tile[cells];
+        this.binds = new Object[cells];
+        this.inAtlas = new boolean[cells];
+        this.planned = new int[cells * 4];
+        this.plannedTiles = new Tile[cells];
+        this.groups = new Object[cells];
+    }
+    
+    /**
+     * Sets a tile of the section.
+     *
+     * @param i            section x
+     * @param j            section y
+     * @param t            the tile, or null if nothing is drawn there
+     * @param atlasTexture the atlas texture of the tile, or null if it is not
+     *                     in the atlas
+     * @param texture      the own texture of the tile
+     */
+    void set(int i, int j, Tile t, Object atlasTexture, Object texture) {
+        int index = i * this.size + j;
+        this.tiles[index] = t;
+        this.atlasTextures[index] = t == null ? null : atlasTexture;
+        this.textures[index] = t == null ? null : texture;
+    }
+    
+    /**
+     * Computes the rectangles of the tiles set since the last plan and clears
+     * the tiles.
+     *
+     * @param merge whether identical looking tiles are merged
+     * @return the amount of rectangles
+     */
+    int plan(boolean merge) {
+        int plannedCount = 0;
+        for (int j = 0; j < this.size; j++) {
+            for (int i = 0; i < this.size; i++) {
+                Tile t = this.tiles[i * this.size + j];
+                if (t == null) {
+                    continue;
+                }
+                int w = 1;
+                int h = 1;
+                if (merge) {
+                    while (i + w < this.size && looksSame(i * this.size + j, (i + w) * this.size + j)) {
+                        w++;
+                    }
+                    while (j + h < this.size && rowLooksSame(i, w, j, j + h)) {
+                        h++;
+                    }
+                    if (w * h < MIN_ATLAS_RUN && this.atlasTextures[i * this.size + j] != null) {
+                        w = 1;
+                        h = 1;
+                    }
+                }
+                //the textures stay, they are still needed to sort the rectangles
+                for (int k = i; k < i + w; k++) {
+                    for (int l = j; l < j + h; l++) {
+                        this.tiles[k * this.size + l] = null;
+                    }
+                }
+                this.planned[plannedCount * 4] = i;
+                this.planned[plannedCount * 4 + 1] = j;
+                this.planned[plannedCount * 4 + 2] = w;
+                this.planned[plannedCount * 4 + 3] = h;
+                this.plannedTiles[plannedCount] = t;
+                plannedCount++;
+            }
+        }
+        //the atlas first, then the other textures in the order they first appear
+        int groupCount = 0;
+        for (boolean atlas : new boolean[] { true, false }) {
+            for (int p = 0; p < plannedCount; p++) {
+                if (isAtlasPlanned(p) != atlas) {
+                    continue;
+                }
+                Object bind = bindPlanned(p);
+                boolean known = false;
+                for (int g = 0; g < groupCount && !known; g++) {
+                    known = this.groups[g] == bind;
+                }
+                if (!known) {
+                    this.groups[groupCount++] = bind;
+                }
+            }
+        }
+        this.count = 0;
+        for (int g = 0; g < groupCount; g++) {
+            for (int p = 0; p < plannedCount; p++) {
+                if (bindPlanned(p) == this.groups[g]) {
+                    add(p, this.groups[g], isAtlasPlanned(p));
+                }
+            }
+        }
+        Arrays.fill(this.groups, 0, groupCount, null);
+        Arrays.fill(this.plannedTiles, 0, plannedCount, null);
+        Arrays.fill(this.atlasTextures, null);
+        Arrays.fill(this.textures, null);
+        return this.count;
+    }
+    
+    int getCount() {
+        return this.count;
+    }
+    
+    Tile getTile(int rect) {
+        return this.rectTiles[rect];
+    }
+    
+    int getX(int rect) {
+        return this.rects[rect * 4];
+    }
+    
+    int getY(int rect) {
+        return this.rects[rect * 4 + 1];
+    }
+    
+    int getWidth(int rect) {
+        return this.rects[rect * 4 + 2];
+    }
+    
+    int getHeight(int rect) {
+        return this.rects[rect * 4 + 3];
+    }
+    
+    /**
+     * @param rect the rectangle
+     * @return whether the rectangle is a single tile drawn from the atlas
+     */
+    boolean isInAtlas(int rect) {
+        return this.inAtlas[rect];
+    }
+    
+    /**
+     * @param rect the rectangle
+     * @return the texture that is bound to draw the rectangle
+     */
+    Object getBind(int rect) {
+        return this.binds[rect];
+    }
+    
+    /**
+     * @return how often the texture changes while drawing the section,
+     *         including the first bind
+     */
+    int countTextureBinds() {
+        int binds = 0;
+        for (int r = 0; r < this.count; r++) {
+            if (r == 0 || this.binds[r] != this.binds[r - 1]) {
+                binds++;
+            }
+        }
+        return binds;
+    }
+    
+    private void add(int p, Object bind, boolean atlas) {
+        System.arraycopy(this.planned, p * 4, this.rects, this.count * 4, 4);
+        this.rectTiles[this.count] = this.plannedTiles[p];
+        this.binds[this.count] = bind;
+        this.inAtlas[this.count] = atlas;
+        this.count++;
+    }
+    
+    //only single tiles are drawn from the atlas
+    private boolean isAtlasPlanned(int p) {
+        boolean single = this.planned[p * 4 + 2] == 1 && this.planned[p * 4 + 3] == 1;
+        return single && this.atlasTextures[plannedIndex(p)] != null;
+    }
+    
+    private Object bindPlanned(int p) {
+        int index = plannedIndex(p);
+        return isAtlasPlanned(p) ? this.atlasTextures[index] : this.textures[index];
+    }
+    
+    private int plannedIndex(int p) {
+        return this.planned[p * 4] * this.size + this.planned[p * 4 + 1];
+    }
+    
+    private boolean rowLooksSame(int i, int w, int j, int row) {
+        for (int k = i; k < i + w; k++) {
+            if (!looksSame(i * this.size + j, k * this.size + row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    //Tiles can only be merged if they would be rendered exactly the same way. A tile in the atlas and one that isn't
+    //never look the same, the run would leave the atlas for the one but not for the other
+    private boolean looksSame(int index, int otherIndex) {
+        Tile t = this.tiles[index];
+        if (t == null) {
+            return false;
+        }
+        Tile other = this.tiles[otherIndex];
+        if (other == null) {
+            return false;
+        }
+        if (t == other) {
+            return true;
+        }
+        Color c = t.color();
+        Color o = other.color();
+        return this.textures[index] == this.textures[otherIndex]
+                && this.atlasTextures[index] == this.atlasTextures[otherIndex] && c.getR() == o.getR() && c.getG() == o.getG()
+                && c.getB() == o.getB() && c.getA() == o.getA();
+    }
+}
@@ -0,0 +1,118 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.omnikryptec.util.Util;
+import de.pcfreak9000.space.util.noise.Seeds;
+
+/**
+ * A {@link RegionGenerator} made of {@link GenerationStage}s that run in the
+ * order of their {@link Phase}, and in the order they were added inside of a
+ * phase. The output only depends on the world seed and the region
+ * coordinates, and filling a buffer does not touch the world, so
+ * {@link TileWorld#requestRegions(int, int, int, int)} generates many regions
+ * in parallel.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class StagedRegionGenerator implements RegionGenerator {
+    
+    public static enum Phase {
+        TERRAIN, CAVES, ORES, DECORATION;
+    }
+    
+    private final long seed;
+    private final Map<Phase, List<GenerationStage>> stages;
+    private ColumnProvider columnProvider;
+    
+    public StagedRegionGenerator(long seed) {
+        this.seed = seed;
+        this.stages = new EnumMap<>(Phase.class);
+        for (Phase p : Phase.values()) {
+            this.stages.put(p, new ArrayList<>());
+        }
+    }
+    
+    /**
+     * Adds a stage. Not thread safe, add all stages before generating.
+     *
+     * @param phase the phase the stage belongs to
+     * @param stage the stage
+     * @return this
+     */
+    public StagedRegionGenerator addStage(Phase phase, GenerationStage stage) {
+        Util.ensureNonNull(phase);
+        Util.ensureNonNull(stage);
+        this.stages.get(phase).add(stage);
+        return this;
+    }
+    
+    /**
+     * Sets the provider of the per column values of worlds using this
+     * generator. Has to be set before the {@link TileWorld} is created. Stages
+     * get the values with {@link TileWorld#getColumn(int)}.
+     *
+     * @param columnProvider the provider
+     * @return this
+     */
+    public StagedRegionGenerator setColumnProvider(ColumnProvider columnProvider) {
+        this.columnProvider = columnProvider;
+        return this;
+    }
+    
+    public ColumnProvider getColumnProvider() {
+        return this.columnProvider;
+    }
+    
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /**
+     * Runs all stages for a region without changing the region itself. Can be
+     * called from any thread.
+     *
+     * @param region    the region to generate
+     * @param tileWorld the world of the region
+     * @return the generated tiles
+     */
+    public GenerationBuffer generateBuffer(Region region, TileWorld tileWorld) {
+        return generateBuffer(region.getGlobalRegionX(), region.getGlobalRegionY(), tileWorld);
+    }
+    
+    /**
+     * Runs all stages for a region that does not need to exist. Can be called
+     * from any thread.
+     *
+     * @param rx        region x
+     * @param ry        region y
+     * @param tileWorld the world of the region
+     * @return the generated tiles
+     */
+    public GenerationBuffer generateBuffer(int rx, int ry, TileWorld tileWorld) {
+        GenerationBuffer buffer = new GenerationBuffer(rx, ry);
+        long regionSeed = Seeds.regionSeed(this.seed, rx, ry);
+        for (Phase p : Phase.values()) {
+            List<GenerationStage> list = this.stages.get(p);
+            for (int i = 0; i < list.size(); i++) {
+                list.get(i).generate(tileWorld, buffer, new Random(Seeds.hash(regionSeed, p.ordinal(), i)));
+            }
+        }
+        return buffer;
+    }
+    
+    /**
+     * Generates a region on its own. Writes of the stages outside of the region
+     * are dropped, a {@link TileWorld} generates with
+     * {@link #generateBuffer(Region, TileWorld)} instead and applies them.
+     */
+    @Override
+    public void generateChunk(Region region, TileWorld tileWorld) {
+        region.ingest(generateBuffer(region, tileWorld));
+    }
+}
@@ -0,0 +1,211 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.tileworld.tile.ScheduledTickable;
+import de.pcfreak9000.space.tileworld.tile.Tickable;
+
+/**
+ * Limits the time spent on ticking the {@link Tickable}s of all loaded regions
+ * in one update and keeps track of what each tile entity class costs. Once
+ * the budget of an update is used up, the remaining tickables are skipped and
+ * the next update continues where this one stopped, so over a few updates
+ * every tickable is ticked, round-robin. A skipped tickable misses that update
+ * and only sees the delta of the update it is ticked in.<br>
+ * At least one tickable is ticked per update, no matter how slow it is.<br>
+ * Only {@link Tickable}s are skipped. Scheduled ticks, random ticks and fluid
+ * steps always run in full, since they already only do work when something
+ * happens. The time they take still passes, so it leaves less of the budget
+ * for the tickables of the regions ticked after them.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class TickBudget {
+    
+    public static final long DEFAULT_BUDGET_NANOS = 4_000_000;
+    public static final long UNLIMITED = Long.MAX_VALUE;
+    
+    /**
+     * The accumulated cost of ticking the tile entities of one class.
+     */
+    public static final class Cost {
+        private final Class<?> type;
+        private long calls;
+        private long totalNanos;
+        private long maxNanos;
+        
+        private Cost(Class<?> type) {
+            this.type = type;
+        }
+        
+        public Class<?> getType() {
+            return this.type;
+        }
+        
+        public long getCalls() {
+            return this.calls;
+        }
+        
+        public long getTotalNanos() {
+            return this.totalNanos;
+        }
+        
+        public long getMaxNanos() {
+            return this.maxNanos;
+        }
+        
+        public double getMeanNanos() {
+            return this.calls == 0 ? 0 : this.totalNanos / (double) this.calls;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d calls, %.3f ms total, %.1f us mean, %.1f us max",
+                    this.type.getName(), this.calls, this.totalNanos / 1e6, getMeanNanos() / 1e3,
+                    this.maxNanos / 1e3);
+        }
+    }
+    
+    private final Map<Class<?>, Cost> costs = new HashMap<>();
+    
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private long deadline;
+    private boolean ticked;
+    private boolean exhausted;
+    private int skippedUpdates;
+    
+    /**
+     * Sets how much time all tickables together may take per update.
+     *
+     * @param nanos the budget in nanoseconds, or {@link #UNLIMITED}
+     */
+    public void setBudgetNanos(long nanos) {
+        if (nanos <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + nanos);
+        }
+        this.budgetNanos = nanos;
+    }
+    
+    public long getBudgetNanos() {
+        return this.budgetNanos;
+    }
+    
+    /**
+     * Starts the budget of a new update.
+     */
+    public void begin() {
+        long now = System.nanoTime();
+        this.deadline = this.budgetNanos > UNLIMITED - now ? UNLIMITED : now + this.budgetNanos;
+        this.ticked = false;
+        this.exhausted = false;
+    }
+    
+    /**
+     * @return whether the budget of this update is used up
+     */
+    public boolean isExhausted() {
+        if (this.exhausted) {
+            return true;
+        }
+        if (this.ticked && this.budgetNanos != UNLIMITED && System.nanoTime() - this.deadline >= 0) {
+            this.exhausted = true;
+            this.skippedUpdates++;
+        }
+        return this.exhausted;
+    }
+    
+    /**
+     * @return the amount of updates that could not tick everything
+     */
+    public int getSkippedUpdates() {
+        return this.skippedUpdates;
+    }
+    
+    void tick(Tickable tickable, Time time) {
+        long start = System.nanoTime();
+        tickable.tick(time);
+        record(tickable.getClass(), System.nanoTime() - start);
+    }
+    
+    float scheduledTick(ScheduledTickable tickable, float elapsed) {
+        long start = System.nanoTime();
+        float next = tickable.scheduledTick(elapsed);
+        record(tickable.getClass(), System.nanoTime() - start);
+        return next;
+    }
+    
+    private void record(Class<?> type, long nanos) {
+        this.ticked = true;
+        Cost cost = costOf(type);
+        cost.calls++;
+        cost.totalNanos += nanos;
+        cost.maxNanos = Math.max(cost.maxNanos, nanos);
+    }
+    
+    private Cost costOf(Class<?> type) {
+        Cost cost = this.costs.get(type);
+        if (cost == null) {
+            cost = new Cost(type);
+            this.costs.put(type, cost);
+        }
+        return cost;
+    }
+    
+    /**
+     * @return the costs of all tile entity classes ticked so far, most
+     *         expensive in total first
+     */
+    public List<Cost> getCosts() {
+        List<Cost> list = new ArrayList<>(this.costs.values());
+        list.sort((c0, c1) -> Long.compare(c1.totalNanos, c0.totalNanos));
+        return list;
+    }
+    
+    /**
+     * Adds the costs recorded here to another budget and resets them here.
+     *
+     * @param target the budget to add the costs to
+     */
+    void moveCostsTo(TickBudget target) {
+        for (Cost cost : this.costs.values()) {
+            if (cost.calls == 0) {
+                continue;
+            }
+            Cost sum = target.costOf(cost.type);
+            sum.calls += cost.calls;
+            sum.totalNanos += cost.totalNanos;
+            sum.maxNanos = Math.max(sum.maxNanos, cost.maxNanos);
+            cost.calls = 0;
+            cost.totalNanos = 0;
+            cost.maxNanos = 0;
+        }
+    }
+    
+    public void resetCosts() {
+        this.costs.clear();
+        this.skippedUpdates = 0;
+    }
+    
+    /**
+     * @param topN how many tile entity classes to list
+     * @return a readable summary of the most expensive tile entity classes
+     */
+    public String report(int topN) {
+        List<Cost> list = getCosts();
+        StringBuilder b = new StringBuilder("Tick costs: ");
+        String budget = this.budgetNanos == UNLIMITED ? "unlimited"
+                : String.format(Locale.ROOT, "%.2f ms", this.budgetNanos / 1e6);
+        b.append(String.format(Locale.ROOT, "%d classes, budget %s, %d updates over budget", list.size(), budget,
+                this.skippedUpdates));
+        for (int i = 0; i < topN && i < list.size(); i++) {
+            b.append(String.format("%n  %d. ", i + 1)).append(list.get(i));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.omnikryptec.util.Util;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * A batch of tile changes in a {@link TileWorld}, created with
+ * {@link TileWorld#edit()}. Nothing is changed until {@link #commit()}, which
+ * writes the changes of each region in one pass and updates its light, level
+ * of detail, tile caches and minimap once, instead of once per tile.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class TileEdit {
+    
+    private final TileWorld tileWorld;
+    
+    private Tile[] tiles = new Tile[16];
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int size = 0;
+    
+    private boolean committed = false;
+    
+    TileEdit(TileWorld tileWorld) {
+        this.tileWorld = tileWorld;
+    }
+    
+    /**
+     * Queues a tile change. Changes outside of the world are ignored. If the
+     * same position is set more than once, the last change wins.
+     *
+     * @param t  the new tile
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return this
+     */
+    public TileEdit set(Tile t, int tx, int ty) {
+        Util.ensureNonNull(t);
+        if (this.committed) {
+            throw new IllegalStateException("Edit has already been committed");
+        }
+        if (!this.tileWorld.inBounds(tx, ty)) {
+            return this;
+        }
+        if (this.size == this.tiles.length) {
+            int newLength = this.size * 2;
+            this.tiles = Arrays.copyOf(this.tiles, newLength);
+            this.xs = Arrays.copyOf(this.xs, newLength);
+            this.ys = Arrays.copyOf(this.ys, newLength);
+        }
+        this.tiles[this.size] = t;
+        this.xs[this.size] = tx;
+        this.ys[this.size] = ty;
+        this.size++;
+        return this;
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    public void commit() {
+        if (this.committed) {
+            throw new IllegalStateException("Edit has already been committed");
+        }
+        this.committed = true;
+        if (this.tileWorld.getParallelTickRegion() != null) {
+            //changes to other regions are deferred until the tick phase is over, light is resolved after it
+            for (int i = 0; i < this.size; i++) {
+                this.tileWorld.setTile(this.tiles[i], this.xs[i], this.ys[i]);
+            }
+            return;
+        }
+        int regionsHeight = this.tileWorld.getRegionArrayHeight();
+        //region index in the upper half, edit index in the lower half keeps the edit order inside of a region
+        long[] keys = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            long regionIndex = Region.toGlobalRegion(this.xs[i]) * regionsHeight + Region.toGlobalRegion(this.ys[i]);
+            keys[i] = regionIndex << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[this.size];
+        for (int k = 0; k < this.size; k++) {
+            order[k] = (int) keys[k];
+        }
+        List<Region> touched = new ArrayList<>();
+        List<long[]> changes = new ArrayList<>();
+        int from = 0;
+        while (from < this.size) {
+            long regionIndex = keys[from] >>> 32;
+            int to = from + 1;
+            while (to < this.size && keys[to] >>> 32 == regionIndex) {
+                to++;
+            }
+            Region r = this.tileWorld.requestRegion((int) (regionIndex / regionsHeight),
+                    (int) (regionIndex % regionsHeight));
+            long[] changed = r.applyEdit(this, order, from, to);
+            if (changed != null) {
+                touched.add(r);
+                changes.add(changed);
+            }
+            from = to;
+        }
+        //all regions are written before light spreads across their borders and neighbours look at them
+        for (Region r : touched) {
+            r.resolveLights();
+        }
+        for (int i = 0; i < touched.size(); i++) {
+            touched.get(i).notifyTilesChanged(changes.get(i));
+        }
+    }
+    
+    Tile getTile(int i) {
+        return this.tiles[i];
+    }
+    
+    int getX(int i) {
+        return this.xs[i];
+    }
+    
+    int getY(int i) {
+        return this.ys[i];
+    }
+}
@@ -60,6 +60,16 @@ public class TileStorage {
         }
     }
     
+    /**
+     * @return the estimated size of the arrays and the tile states, without
+     *         their light colours
+     */
+    long estimateBytes() {
+        return RegionMemory.array(this.size, RegionMemory.REFERENCE)
+                + this.size * RegionMemory.array(this.size, RegionMemory.REFERENCE)
+                + (long) this.size * this.size * RegionMemory.TILE_STATE;
+    }
+    
     public void execute(Consumer<TileState> function) {
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
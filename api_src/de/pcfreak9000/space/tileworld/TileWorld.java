@@ -1,17 +1,38 @@
 package de.pcfreak9000.space.tileworld;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import de.omnikryptec.util.Logger;
 import de.omnikryptec.util.math.Mathd;
-import de.omnikryptec.util.profiling.Profiler;
+import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.tileworld.tile.ScheduledTickable;
 import de.pcfreak9000.space.tileworld.tile.Tile;
 import de.pcfreak9000.space.tileworld.tile.TileState;
+import de.pcfreak9000.space.util.metrics.Histogram;
+import de.pcfreak9000.space.util.metrics.Metrics;
 
 public class TileWorld {
     
+    private static final Logger LOGGER = Logger.getLogger(TileWorld.class);
+    
+    private static final Histogram GENERATE = Metrics.histogram("region.generate");
+    private static final Histogram STORE_READ = Metrics.histogram("region.storeRead");
+    private static final Histogram GENERATE_BATCH = Metrics.histogram("world.generateRegions");
+    private static final Histogram INTERSECTIONS = Metrics.histogram("world.collectTileIntersections");
+    private static final Histogram TICK_PHASE = Metrics.histogram("world.tickPhase");
+    
     //in tiles
     private final int width;
     private final int height;
@@ -23,6 +44,33 @@ public class TileWorld {
     
     private final Region[][] regions;
     
+    private InstanceBufferPool instanceBufferPool;
+    
+    private final ColumnCache columns;
+    
+    //writes for regions that are not generated yet, by region index
+    private final Map<Integer, PendingWrites> pendingWrites;
+    
+    private Minimap minimap;
+    
+    private RegionStore regionStore;
+    
+    public static final float DEFAULT_RANDOM_TICK_RATE = 60;
+    
+    //seconds of simulated time, only advances while the world is ticked
+    private double gameTime = 0;
+    private float randomTickRate = DEFAULT_RANDOM_TICK_RATE;
+    private final TickBudget tickBudget = new TickBudget();
+    private final NeighbourUpdates neighbourUpdates = new NeighbourUpdates(this);
+    private final FallingTiles fallingTiles;
+    
+    private boolean parallelTicking = Boolean.getBoolean("space.parallelTicks");
+    //only set while a phase of tickParallel runs, so the ThreadLocal is not looked at otherwise
+    private volatile boolean inTickPhase = false;
+    private final ThreadLocal<Region> tickingRegion = new ThreadLocal<>();
+    @SuppressWarnings("unchecked")
+    private final List<Region>[] tickPhases = new List[4];
+    
     private boolean wrapsAround = true;
     
     public TileWorld(int width, int height, RegionGenerator generator) {
@@ -32,21 +80,285 @@ public class TileWorld {
         this.arrayHeight = (int) Mathd.ceil(height / (double) Region.REGION_TILE_SIZE);
         this.generator = generator;
         this.regions = new Region[this.arrayWidth][this.arrayHeight];
+        ColumnProvider columnProvider = columnProviderOf(generator);
+        this.columns = columnProvider == null ? null : new ColumnCache(this, columnProvider);
+        this.pendingWrites = new HashMap<>();
+        this.fallingTiles = new FallingTiles(this);
+    }
+    
+    private static ColumnProvider columnProviderOf(RegionGenerator generator) {
+        if (generator instanceof ColumnProvider) {
+            return (ColumnProvider) generator;
+        }
+        if (generator instanceof StagedRegionGenerator) {
+            return ((StagedRegionGenerator) generator).getColumnProvider();
+        }
+        return null;
     }
     
     public Region requestRegion(int rx, int ry) {
         if (inRegionBounds(rx, ry)) {
             Region r = this.regions[rx][ry];
+            if (r == null && getParallelTickRegion() != null) {
+                //regions are only generated on the thread that ticks the world
+                return null;
+            }
             if (r == null) {
                 r = new Region(rx, ry, this);
                 this.regions[rx][ry] = r;
-                this.generator.generateChunk(r, this);
+                GenerationBuffer buffer = createBuffer(rx, ry);
+                if (buffer != null) {
+                    Set<Region> touched = new HashSet<>();
+                    dispatchOutsideWrites(buffer, touched);
+                    ingest(r, buffer);
+                    resolveLights(touched);
+                } else {
+                    generate(r);
+                }
             }
             return r;
         }
         return null;
     }
     
+    /**
+     * Makes sure all regions in a rectangle of region coordinates are
+     * generated. Regions that are persisted in the {@link RegionStore} of this
+     * world or generated by a {@link StagedRegionGenerator} are loaded or
+     * generated in parallel and only added to the world on the calling thread,
+     * otherwise this is the same as calling {@link #requestRegion(int, int)}
+     * for each of them.
+     *
+     * @param minRx smallest region x, inclusive
+     * @param minRy smallest region y, inclusive
+     * @param maxRx biggest region x, inclusive
+     * @param maxRy biggest region y, inclusive
+     */
+    public void requestRegions(int minRx, int minRy, int maxRx, int maxRy) {
+        List<Region> missing = new ArrayList<>();
+        for (int rx = Math.max(minRx, 0); rx <= maxRx && rx < this.arrayWidth; rx++) {
+            for (int ry = Math.max(minRy, 0); ry <= maxRy && ry < this.arrayHeight; ry++) {
+                if (this.regions[rx][ry] == null) {
+                    missing.add(new Region(rx, ry, this));
+                }
+            }
+        }
+        if (missing.size() > 1 && (this.generator instanceof StagedRegionGenerator || this.regionStore != null)) {
+            long start = Metrics.start();
+            List<GenerationBuffer> buffers = missing.parallelStream()
+                    .map((r) -> createBuffer(r.getGlobalRegionX(), r.getGlobalRegionY())).collect(Collectors.toList());
+            //none of the new regions are in the world yet, so writes between them are queued and picked up below
+            Set<Region> touched = new HashSet<>();
+            for (GenerationBuffer buffer : buffers) {
+                if (buffer != null) {
+                    dispatchOutsideWrites(buffer, touched);
+                }
+            }
+            for (int i = 0; i < missing.size(); i++) {
+                Region r = missing.get(i);
+                this.regions[r.getGlobalRegionX()][r.getGlobalRegionY()] = r;
+                if (buffers.get(i) != null) {
+                    ingest(r, buffers.get(i));
+                } else {
+                    generate(r);
+                }
+            }
+            resolveLights(touched);
+            GENERATE_BATCH.recordSince(start);
+        } else {
+            for (Region r : missing) {
+                requestRegion(r.getGlobalRegionX(), r.getGlobalRegionY());
+            }
+        }
+    }
+    
+    /**
+     * Loads regions from the given store instead of generating them, if they
+     * are persisted there.
+     *
+     * @param regionStore the store, or null
+     */
+    public void setRegionStore(RegionStore regionStore) {
+        this.regionStore = regionStore;
+    }
+    
+    public RegionStore getRegionStore() {
+        return this.regionStore;
+    }
+    
+    public RegionGenerator getGenerator() {
+        return this.generator;
+    }
+    
+    /**
+     * Loads or generates the tiles of a region without touching the world.
+     * Thread safe.
+     *
+     * @return the tiles, or null if the region has to be generated with
+     *         {@link #generate(Region)}
+     */
+    private GenerationBuffer createBuffer(int rx, int ry) {
+        if (this.regionStore != null) {
+            try {
+                long start = Metrics.start();
+                GenerationBuffer buffer = this.regionStore.read(rx, ry);
+                if (buffer != null) {
+                    STORE_READ.recordSince(start);
+                    return buffer;
+                }
+            } catch (IOException e) {
+                LOGGER.error(String.format("Could not load region (%d, %d), generating it instead: %s", rx, ry, e));
+            }
+        }
+        if (this.generator instanceof StagedRegionGenerator) {
+            long start = Metrics.start();
+            GenerationBuffer buffer = ((StagedRegionGenerator) this.generator).generateBuffer(rx, ry, this);
+            GENERATE.recordSince(start);
+            return buffer;
+        }
+        return null;
+    }
+    
+    private void generate(Region r) {
+        long start = Metrics.start();
+        this.generator.generateChunk(r, this);
+        GENERATE.recordSince(start);
+        PendingWrites pending = this.pendingWrites.remove(regionIndex(r.getGlobalRegionX(), r.getGlobalRegionY()));
+        if (pending != null) {
+            pending.applyTo(r);
+        }
+        regionGenerated(r);
+    }
+    
+    /**
+     * @return the amount of tile writes queued for regions that are not
+     *         generated yet
+     */
+    public int getPendingWriteCount() {
+        int count = 0;
+        for (PendingWrites p : this.pendingWrites.values()) {
+            count += p.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Estimates the heap usage of every generated region, heaviest first.
+     *
+     * @return the estimates
+     */
+    public List<RegionMemory> estimateRegionMemory() {
+        List<RegionMemory> list = new ArrayList<>();
+        for (Region[] column : this.regions) {
+            for (Region r : column) {
+                if (r != null) {
+                    list.add(r.estimateMemory());
+                }
+            }
+        }
+        list.sort(Comparator.comparingLong(RegionMemory::getTotal).reversed());
+        return list;
+    }
+    
+    /**
+     * @return the summed estimate of all generated regions
+     */
+    public RegionMemory estimateMemory() {
+        RegionMemory sum = new RegionMemory();
+        for (RegionMemory m : estimateRegionMemory()) {
+            sum.add(m);
+        }
+        return sum;
+    }
+    
+    /**
+     * A readable breakdown of the estimated heap usage of this world: the sum
+     * of all regions, the world wide caches and the heaviest regions.
+     *
+     * @param topN how many of the heaviest regions to list
+     * @return the report
+     */
+    public String memoryReport(int topN) {
+        List<RegionMemory> list = estimateRegionMemory();
+        RegionMemory sum = new RegionMemory();
+        for (RegionMemory m : list) {
+            sum.add(m);
+        }
+        long pending = 0;
+        for (PendingWrites p : this.pendingWrites.values()) {
+            pending += p.estimateBytes();
+        }
+        StringBuilder b = new StringBuilder("World memory estimate: ").append(sum);
+        b.append(String.format(Locale.ROOT, "%n  region array: %.1f KiB",
+                (RegionMemory.array(this.arrayWidth, RegionMemory.REFERENCE)
+                        + this.arrayWidth * RegionMemory.array(this.arrayHeight, RegionMemory.REFERENCE)) / 1024.0));
+        b.append(String.format(Locale.ROOT, "%n  pending writes: %d in %.1f KiB", getPendingWriteCount(),
+                pending / 1024.0));
+        b.append(String.format(Locale.ROOT, "%n  neighbour updates: %d in %.1f KiB", this.neighbourUpdates.size(),
+                this.neighbourUpdates.estimateBytes() / 1024.0));
+        b.append(String.format(Locale.ROOT, "%n  falling tiles: %d active columns in %.1f KiB",
+                this.fallingTiles.getActiveColumnCount(), this.fallingTiles.estimateBytes() / 1024.0));
+        if (this.columns != null) {
+            b.append(String.format(Locale.ROOT, "%n  column cache: %d columns in %.1f KiB",
+                    this.columns.getCachedCount(), this.columns.estimateBytes() / 1024.0));
+        }
+        for (int i = 0; i < topN && i < list.size(); i++) {
+            b.append(String.format("%n  %d. ", i + 1)).append(list.get(i));
+        }
+        return b.toString();
+    }
+    
+    private void ingest(Region r, GenerationBuffer buffer) {
+        PendingWrites pending = this.pendingWrites.remove(regionIndex(r.getGlobalRegionX(), r.getGlobalRegionY()));
+        if (pending != null) {
+            pending.applyTo(buffer);
+        }
+        r.ingest(buffer);
+        regionGenerated(r);
+    }
+    
+    private void dispatchOutsideWrites(GenerationBuffer buffer, Set<Region> touched) {
+        PendingWrites outside = buffer.getOutsideWrites();
+        if (outside == null) {
+            return;
+        }
+        for (int i = 0; i < outside.size(); i++) {
+            int tx = outside.getX(i);
+            int ty = outside.getY(i);
+            if (!inBounds(tx, ty)) {
+                continue;
+            }
+            int rx = Region.toGlobalRegion(tx);
+            int ry = Region.toGlobalRegion(ty);
+            Region target = this.regions[rx][ry];
+            if (target == null) {
+                this.pendingWrites.computeIfAbsent(regionIndex(rx, ry), (k) -> new PendingWrites())
+                        .add(outside.getTile(i), tx, ty, outside.isBackground(i));
+            } else if (outside.isBackground(i)) {
+                target.setTileBackground(outside.getTile(i), tx, ty);
+            } else {
+                target.setTile(outside.getTile(i), tx, ty);
+                touched.add(target);
+            }
+        }
+    }
+    
+    private void resolveLights(Set<Region> touched) {
+        for (Region r : touched) {
+            r.resolveLights();
+        }
+    }
+    
+    private int regionIndex(int rx, int ry) {
+        return rx * this.arrayHeight + ry;
+    }
+    
+    private void regionGenerated(Region r) {
+        if (this.minimap != null) {
+            this.minimap.regionGenerated(r);
+        }
+    }
+    
     public Region getRegion(int rx, int ry) {
         if (inRegionBounds(rx, ry)) {
             return this.regions[rx][ry];
@@ -69,21 +381,286 @@ public class TileWorld {
         return r == null ? null : r.getTile(tx, ty);//Meh
     }
     
+    /**
+     * Like {@link #getTile(int, int)}, but never generates the region.
+     *
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return the tile, or null if the region is not generated or out of bounds
+     */
+    public Tile getTileIfGenerated(int tx, int ty) {
+        Region r = getRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        return r == null || !inBounds(tx, ty) ? null : r.getTile(tx, ty);
+    }
+    
     public void setTile(Tile tile, int tx, int ty) {
         int rx = Region.toGlobalRegion(tx);
         int ry = Region.toGlobalRegion(ty);
+        Region ticking = getParallelTickRegion();
+        if (ticking != null && (ticking.getGlobalRegionX() != rx || ticking.getGlobalRegionY() != ry)) {
+            if (inBounds(tx, ty)) {
+                ticking.deferWrite(tile, tx, ty, false);
+            }
+            return;
+        }
         Region r = requestRegion(rx, ry);
         if (r != null) {
             r.setTile(tile, tx, ty);
         }
     }
     
+    /**
+     * Advances the game time that scheduled ticks are due at. Called once per
+     * update, before the regions are ticked.
+     *
+     * @param delta the simulated seconds of this update
+     */
+    public void advanceTime(float delta) {
+        this.gameTime += delta;
+    }
+    
+    public double getGameTime() {
+        return this.gameTime;
+    }
+    
+    /**
+     * Wakes up the {@link ScheduledTickable} tile entity of a tile after the
+     * given delay. Does nothing if the region of the tile is not generated.
+     *
+     * @param state the tile state of the tile entity
+     * @param delay seconds from now
+     */
+    public void scheduleTick(TileState state, float delay) {
+        Region r = getRegion(Region.toGlobalRegion(state.getGlobalTileX()),
+                Region.toGlobalRegion(state.getGlobalTileY()));
+        Region ticking = getParallelTickRegion();
+        if (ticking != null && ticking != r) {
+            ticking.deferScheduleTick(state, delay);
+        } else if (r != null) {
+            r.scheduleTick(state, this.gameTime + Math.max(0, delay));
+        }
+    }
+    
+    /**
+     * Sets how many random tiles of each loaded region are looked at per
+     * second, see {@link Tile#hasRandomTick()}. Regions without random ticking
+     * tiles skip this entirely.
+     *
+     * @param rate random ticks per region and second, 0 turns them off
+     */
+    public void setRandomTickRate(float rate) {
+        this.randomTickRate = rate;
+    }
+    
+    public float getRandomTickRate() {
+        return this.randomTickRate;
+    }
+    
+    /**
+     * @return the budget and cost statistics of the tickables of this world
+     */
+    public TickBudget getTickBudget() {
+        return this.tickBudget;
+    }
+    
+    /**
+     * @return the queue of {@link Tile#neighbourChanged(TileWorld, TileState, TileState)}
+     *         calls, processed once per update after the regions are ticked
+     */
+    public NeighbourUpdates getNeighbourUpdates() {
+        return this.neighbourUpdates;
+    }
+    
+    /**
+     * @return the falling tile simulation, stepped once per update after the
+     *         regions are ticked
+     */
+    public FallingTiles getFallingTiles() {
+        return this.fallingTiles;
+    }
+    
+    /**
+     * Called by a region after one of its foreground tiles changed. Queues the
+     * neighbour updates, marks the column for falling tiles and wakes the
+     * fluid around the tile.
+     *
+     * @param tx global tile x
+     * @param ty global tile y
+     */
+    void tileChanged(int tx, int ty) {
+        Region ticking = getParallelTickRegion();
+        if (ticking != null) {
+            //the queue and the neighbour regions are not thread safe
+            ticking.deferTileChanged(tx, ty);
+            return;
+        }
+        this.neighbourUpdates.tileChanged(tx, ty);
+        this.fallingTiles.tileChanged(tx, ty);
+        addFluid(tx, ty, 0);
+        addFluid(tx, ty + 1, 0);
+        addFluid(tx - 1, ty, 0);
+        addFluid(tx + 1, ty, 0);
+    }
+    
+    /**
+     * Adds fluid to a tile, see {@link FluidLayer}. The level of a tile stays
+     * between 0 and {@link FluidLayer#FULL}, what does not fit is lost. Does
+     * nothing if the region of the tile is not generated.
+     *
+     * @param tx     global tile x
+     * @param ty     global tile y
+     * @param amount the amount to add, may be negative to take fluid away, 0
+     *               only wakes the fluid of the tile
+     */
+    public void addFluid(int tx, int ty, int amount) {
+        if (!inBounds(tx, ty)) {
+            return;
+        }
+        Region r = getRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        Region ticking = getParallelTickRegion();
+        if (ticking != null && ticking != r) {
+            ticking.deferFluid(tx, ty, amount);
+        } else if (r != null) {
+            r.addFluid(tx, ty, amount);
+        }
+    }
+    
+    /**
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return the fluid level of the tile, 0 if the region is not generated
+     */
+    public int getFluidLevel(int tx, int ty) {
+        Region r = getRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        return r == null || !inBounds(tx, ty) ? 0 : r.getFluidLevel(tx, ty);
+    }
+    
+    /**
+     * Whether the regions of this world are ticked with
+     * {@link #tickParallel(Collection, Time)}. Off by default, can be turned on
+     * with the system property <code>space.parallelTicks</code>.
+     *
+     * @param parallel tick in parallel
+     */
+    public void setParallelTicking(boolean parallel) {
+        this.parallelTicking = parallel;
+    }
+    
+    public boolean isParallelTicking() {
+        return this.parallelTicking;
+    }
+    
+    /**
+     * Ticks regions on all cores. The regions are split into four phases like
+     * a checkerboard by the parity of their region coordinates, so no two
+     * regions of a phase are neighbours, not even diagonally. The regions of a
+     * phase are ticked concurrently, the phases one after another.<br>
+     * While a region is ticked, changes to any other region, be it through
+     * {@link #setTile(Tile, int, int)}, {@link Region#setTile(Tile, int, int)}
+     * or {@link #scheduleTick(TileState, float)}, are kept back and applied
+     * after the phase, region by region in a fixed order, so the result does
+     * not depend on the thread timing. Regions are not generated during a
+     * phase, {@link #requestRegion(int, int)} returns null for missing ones.
+     * Ticks may read their own and the neighbouring regions freely, reading
+     * regions further away is not safe.<br>
+     * The {@link TickBudget} is not applied here, since what would be skipped
+     * depends on timing. The costs of the tickables are still recorded.
+     *
+     * @param regions the regions to tick
+     * @param time    the time of this update
+     */
+    public void tickParallel(Collection<Region> regions, Time time) {
+        for (int i = 0; i < this.tickPhases.length; i++) {
+            if (this.tickPhases[i] == null) {
+                this.tickPhases[i] = new ArrayList<>();
+            }
+            this.tickPhases[i].clear();
+        }
+        for (Region r : regions) {
+            this.tickPhases[(r.getGlobalRegionX() & 1) << 1 | (r.getGlobalRegionY() & 1)].add(r);
+        }
+        Comparator<Region> order = Comparator
+                .comparingInt((r) -> regionIndex(r.getGlobalRegionX(), r.getGlobalRegionY()));
+        for (List<Region> phase : this.tickPhases) {
+            if (phase.isEmpty()) {
+                continue;
+            }
+            phase.sort(order);
+            long start = Metrics.start();
+            this.inTickPhase = true;
+            try {
+                IntStream.range(0, phase.size()).parallel().forEach((i) -> tickInPhase(phase.get(i), time));
+            } finally {
+                this.inTickPhase = false;
+            }
+            for (Region r : phase) {
+                r.applyDeferred(this.tickBudget);
+            }
+            TICK_PHASE.recordSince(start);
+        }
+    }
+    
+    private void tickInPhase(Region r, Time time) {
+        this.tickingRegion.set(r);
+        try {
+            r.tickParallel(time);
+        } finally {
+            this.tickingRegion.remove();
+        }
+    }
+    
+    /**
+     * @return the region the calling thread ticks in a phase of
+     *         {@link #tickParallel(Collection, Time)}, or null
+     */
+    Region getParallelTickRegion() {
+        return this.inTickPhase ? this.tickingRegion.get() : null;
+    }
+    
+    /**
+     * Starts a batch of tile changes. Use this instead of many
+     * {@link #setTile(Tile, int, int)} calls, e.g. for explosions or structures.
+     *
+     * @return a new edit
+     */
+    public TileEdit edit() {
+        return new TileEdit(this);
+    }
+    
+    /**
+     * The cached per column values of a region column, e.g. the surface
+     * height. Thread safe.
+     *
+     * @param rx region x
+     * @return the column
+     * @throws IllegalStateException if the generator of this world does not
+     *                               provide column values
+     */
+    public ColumnData getColumn(int rx) {
+        if (this.columns == null) {
+            throw new IllegalStateException("The generator of this world does not provide column data");
+        }
+        return this.columns.get(rx);
+    }
+    
+    public int getSurfaceHeight(int tx) {
+        return getColumn(Region.toGlobalRegion(tx)).getSurfaceHeight(tx);
+    }
+    
+    /**
+     * @return the column cache, or null if the generator of this world does not
+     *         provide column values
+     */
+    public ColumnCache getColumns() {
+        return this.columns;
+    }
+    
     public void collectTileIntersections(Collection<TileState> output, int x, int y, int w, int h, Predicate<TileState> predicate) {
-        Profiler.begin("collectTileIntersects");
+        long start = Metrics.start();
         boolean xy = inBounds(x, y);
         boolean xwyh = inBounds(x + w, y + h);
         if (!xy && !xwyh) {
-            Profiler.end();
+            INTERSECTIONS.recordSince(start);
             return;
         }
         Set<Region> regions = new HashSet<>();
@@ -102,7 +679,7 @@ public class TileWorld {
         for (Region r : regions) {
             r.tileIntersections(output, x, y, w, h, predicate);
         }
-        Profiler.end();
+        INTERSECTIONS.recordSince(start);
     }
     
     public int getWorldWidth() {
@@ -113,4 +690,64 @@ public class TileWorld {
         return this.height;
     }
     
+    /**
+     * The pool shared by the renderers of the regions of this world, created
+     * when the first region is drawn. Only use from the render thread.
+     *
+     * @return the pool
+     */
+    public InstanceBufferPool getInstanceBufferPool() {
+        if (this.instanceBufferPool == null) {
+            this.instanceBufferPool = new InstanceBufferPool();
+        }
+        return this.instanceBufferPool;
+    }
+    
+    public int getRegionArrayWidth() {
+        return this.arrayWidth;
+    }
+    
+    public int getRegionArrayHeight() {
+        return this.arrayHeight;
+    }
+    
+    /**
+     * Starts maintaining a {@link Minimap} of this world. Already generated
+     * regions are added right away.
+     *
+     * @param level the minimap has one pixel per 2^level x 2^level tiles
+     * @return the minimap
+     */
+    public Minimap enableMinimap(int level) {
+        this.minimap = new Minimap(this, level);
+        for (int i = 0; i < this.arrayWidth; i++) {
+            for (int j = 0; j < this.arrayHeight; j++) {
+                if (this.regions[i][j] != null) {
+                    this.minimap.regionGenerated(this.regions[i][j]);
+                }
+            }
+        }
+        return this.minimap;
+    }
+    
+    public Minimap getMinimap() {
+        return this.minimap;
+    }
+    
+    /**
+     * Rebuilds the colour summaries, the tile caches and the minimap of all
+     * generated regions, since they contain the average colours of the old
+     * tile textures.
+     */
+    public void resourcesReloaded() {
+        for (Region[] column : this.regions) {
+            for (Region r : column) {
+                if (r != null) {
+                    r.resourcesReloaded();
+                    regionGenerated(r);
+                }
+            }
+        }
+    }
+    
 }
@@ -4,48 +4,80 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import de.omnikryptec.util.profiling.Profiler;
+import de.omnikryptec.ecs.IECSManager;
 import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.util.metrics.Counter;
+import de.pcfreak9000.space.util.metrics.GaugeGroup;
+import de.pcfreak9000.space.util.metrics.Histogram;
+import de.pcfreak9000.space.util.metrics.Metrics;
 
 /**
  * Responsible for successful surface world loading and unloading, management of
- * loaded chunks
+ * loaded chunks. Without a camera the loader runs headless: regions are loaded
+ * and ticked, but never get a {@link RegionRenderer}.
  *
  * @author pcfreak9000
  *
  */
 public class WorldLoader {
     
-    private WorldManager manager;
+    private static final Histogram LOAD_CHUNKS = Metrics.histogram("world.loadChunks");
+    private static final Counter LOADS = Metrics.counter("region.loads");
+    private static final Counter UNLOADS = Metrics.counter("region.unloads");
+    
+    //one minimap pixel per 4x4 tiles
+    public static final int MINIMAP_LEVEL = 2;
+    
+    private final IECSManager ecsManager;
+    private final PlanetCamera camera;
     
     private World currentWorld;
     private WorldLoadingFence worldLoadingFence;
     
-    //TODO recache loaded regions if resources have been reloaded
-    
     private final Set<Region> localLoadedChunks;
     
-    public WorldLoader(WorldManager worldMgr) {
+    /**
+     * @param ecsManager the manager the region entities are added to
+     * @param camera     the camera used to pick the level of detail, or null to
+     *                   load the regions without rendering them
+     */
+    public WorldLoader(IECSManager ecsManager, PlanetCamera camera) {
         this.localLoadedChunks = new HashSet<>();
-        this.manager = worldMgr;
+        this.ecsManager = ecsManager;
+        this.camera = camera;
+    }
+    
+    public void addGauges(GaugeGroup gauges) {
+        gauges.gauge("world.loadedRegions", this::getLoadedRegionCount);
+    }
+    
+    public boolean isHeadless() {
+        return this.camera == null;
     }
     
     public void setWorld(World w) {
         if (hasCurrentWorld()) {
             unloadAllRegions();
-            if (this.currentWorld.getBackground() != null) {
-                manager.getECSManager().removeEntity(this.currentWorld.getBackground().getEntity());
+            if (this.currentWorld.getBackground() != null && !isHeadless()) {
+                this.ecsManager.removeEntity(this.currentWorld.getBackground().getEntity());
             }
         }
         this.currentWorld = w;
         if (hasCurrentWorld()) {
+            if (w.getTileWorld().getMinimap() == null) {
+                w.getTileWorld().enableMinimap(MINIMAP_LEVEL);
+            }
             loadAllRegions();
-            if (this.currentWorld.getBackground() != null) {
-                manager.getECSManager().addEntity(this.currentWorld.getBackground().getEntity());
+            if (this.currentWorld.getBackground() != null && !isHeadless()) {
+                this.ecsManager.addEntity(this.currentWorld.getBackground().getEntity());
             }
         }
     }
     
+    public int getLoadedRegionCount() {
+        return this.localLoadedChunks.size();
+    }
+    
     private boolean hasCurrentWorld() {
         return this.currentWorld != null;
     }
@@ -61,10 +93,18 @@ public class WorldLoader {
     }
     
     private void loadAllRegions() {
+        collectRegionsInFence(this.localLoadedChunks);
+        for (Region c : this.localLoadedChunks) {
+            loadRegion(c);
+        }
+    }
+    
+    private void collectRegionsInFence(Set<Region> output) {
         int xR = this.worldLoadingFence.getChunkRadiusRangeX();
         int yR = this.worldLoadingFence.getChunkRadiusRangeY();
         int xM = this.worldLoadingFence.getChunkMidpointX();
         int yM = this.worldLoadingFence.getChunkMidpointY();
+        this.currentWorld.getTileWorld().requestRegions(xM - xR, yM - yR, xM + xR, yM + yR);
         for (int i = 0; i <= 2 * xR; i++) {
             for (int j = 0; j <= 2 * yR; j++) {
                 int rx = i - xR + xM;
@@ -72,8 +112,7 @@ public class WorldLoader {
                 if (this.currentWorld.getTileWorld().inRegionBounds(rx, ry)) {
                     Region c = this.currentWorld.getTileWorld().requestRegion(rx, ry);
                     if (c != null) {
-                        this.localLoadedChunks.add(c);
-                        manager.getECSManager().addEntity(c.getECSEntity());
+                        output.add(c);
                     }
                 }
             }
@@ -83,19 +122,70 @@ public class WorldLoader {
     private void unloadAllRegions() {
         Iterator<Region> it = this.localLoadedChunks.iterator();
         while (it.hasNext()) {
-            Region c = it.next();
-            manager.getECSManager().addEntity(c.getECSEntity());
+            unloadRegion(it.next());
             it.remove();
         }
     }
     
+    private void loadRegion(Region c) {
+        if (!isHeadless()) {
+            //creates the render component before the entity is added, so the render system sees it
+            c.getRenderer();
+        }
+        this.ecsManager.addEntity(c.getECSEntity());
+        LOADS.increment();
+    }
+    
+    private void unloadRegion(Region c) {
+        this.ecsManager.removeEntity(c.getECSEntity());
+        if (c.hasRenderer()) {
+            c.getRenderer().releaseTileCache();
+        }
+        UNLOADS.increment();
+    }
+    
+    /**
+     * Rebuilds the colour summaries and tile caches of the current world after
+     * the tile textures and the atlas have been rebuilt.
+     */
+    public void resourcesReloaded() {
+        if (hasCurrentWorld()) {
+            this.currentWorld.getTileWorld().resourcesReloaded();
+        }
+    }
+    
     //make sure that the chunks are updated for dynamics after the movement but before this
     public void loadChunks(Time time) {
-        //TODO improve world chunk loading update -> unload all non-needed in update and load new needed
-        Profiler.begin("Reload World");
-        unloadAllRegions();
-        loadAllRegions();
-        Profiler.end();
+        long start = Metrics.start();
+        if (!isHeadless()) {
+            this.worldLoadingFence.setScale(this.camera.getZoom());
+        }
+        Set<Region> needed = new HashSet<>();
+        collectRegionsInFence(needed);
+        Iterator<Region> it = this.localLoadedChunks.iterator();
+        while (it.hasNext()) {
+            Region c = it.next();
+            if (!needed.contains(c)) {
+                unloadRegion(c);
+                it.remove();
+            }
+        }
+        ColumnCache columns = this.currentWorld.getTileWorld().getColumns();
+        if (columns != null) {
+            int xM = this.worldLoadingFence.getChunkMidpointX();
+            int xR = this.worldLoadingFence.getChunkRadiusRangeX();
+            columns.evictOutside(xM - xR, xM + xR);
+        }
+        int lodLevel = isHeadless() ? 0 : RegionLod.levelForZoom(this.camera.getZoom());
+        for (Region c : needed) {
+            if (this.localLoadedChunks.add(c)) {
+                loadRegion(c);
+            }
+            if (!isHeadless()) {
+                c.getRenderer().setLodLevel(lodLevel);
+            }
+        }
+        LOAD_CHUNKS.recordSince(start);
         //System.out.println(time.ops);
     }
 }
@@ -9,6 +9,7 @@ public class WorldLoadingFence {
 
     private int xChunkRange = 1;
     private int yChunkRange = 1;
+    private float scale = 1;
     //Is this even useful?
     private int xChunkOffset;
     private int yChunkOffset;
@@ -26,11 +27,21 @@ public class WorldLoadingFence {
     }
 
     public int getChunkRadiusRangeX() {
-        return this.xChunkRange;
+        return (int) Math.ceil(this.xChunkRange * this.scale);
     }
 
     public int getChunkRadiusRangeY() {
-        return this.yChunkRange;
+        return (int) Math.ceil(this.yChunkRange * this.scale);
+    }
+
+    /**
+     * Scales the ranges, e.g. by the zoom of the camera, so a zoomed out camera
+     * sees loaded regions up to its borders.
+     *
+     * @param scale the factor the ranges are multiplied with
+     */
+    public void setScale(float scale) {
+        this.scale = scale;
     }
 
     public void setRange(int xR, int yR) {
@@ -17,6 +17,7 @@ import de.pcfreak9000.space.tileworld.ecs.PhysicsSystem;
 import de.pcfreak9000.space.tileworld.ecs.PlayerInputSystem;
 import de.pcfreak9000.space.tileworld.ecs.RenderSystem;
 import de.pcfreak9000.space.tileworld.ecs.TickRegionSystem;
+import de.pcfreak9000.space.util.metrics.GaugeGroup;
 
 public class WorldManager {
     
@@ -30,6 +31,10 @@ public class WorldManager {
     
     private final WorldLoader worldLoader;
     
+    private final GaugeGroup gauges = new GaugeGroup();
+    private TickRegionSystem tickRegionSystem;
+    private PhysicsSystem physicsSystem;
+    
     private World currentWorld;
     
     public WorldManager() {
@@ -38,7 +43,7 @@ public class WorldManager {
         this.viewManager = this.localScene.getViewManager();
         this.planetCamera = new PlanetCamera();
         this.viewManager.getMainView().setProjection(this.planetCamera.getCameraActual());
-        this.worldLoader = new WorldLoader(this);
+        this.worldLoader = new WorldLoader(this.ecsManager, this.planetCamera);
         UContainer updateables = new UContainer();
         updateables.setUpdatable(0, (t) -> worldLoader.loadChunks(t));
         updateables.setUpdatable(1, this.ecsManager);
@@ -59,8 +64,10 @@ public class WorldManager {
        // this.viewManager.getMainView().setPostprocessor(eff);
         this.ecsManager.addSystem(new RenderSystem(viewManager.createAndAddVRenderer2D()));
         this.ecsManager.addSystem(new PlayerInputSystem());
-        this.ecsManager.addSystem(new TickRegionSystem());
-        this.ecsManager.addSystem(new PhysicsSystem());
+        this.tickRegionSystem = new TickRegionSystem();
+        this.ecsManager.addSystem(this.tickRegionSystem);
+        this.physicsSystem = new PhysicsSystem();
+        this.ecsManager.addSystem(this.physicsSystem);
         this.ecsManager.addSystem(new CameraSystem());
         this.ecsManager.addSystem(new ParallaxSystem());
         //this.ecsManager.addSystem(new FogSystem());
@@ -80,10 +87,14 @@ public class WorldManager {
     
     private void addWorldScene() {
         Omnikryptec.getGameS().addScene(localScene);
+        this.worldLoader.addGauges(this.gauges);
+        this.tickRegionSystem.addGauges(this.gauges);
+        this.physicsSystem.addGauges(this.gauges);
     }
     
     private void removeWorldScene() {
         Omnikryptec.getGameS().removeScene(localScene);
+        this.gauges.remove();
     }
     
     public IECSManager getECSManager() {
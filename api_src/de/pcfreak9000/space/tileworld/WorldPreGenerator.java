@@ -0,0 +1,159 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import de.omnikryptec.util.Logger;
+import de.omnikryptec.util.Util;
+
+/**
+ * Generates a rectangle of regions of a {@link TileWorld} ahead of time and
+ * writes them to a {@link RegionStore}, without creating any {@link Region}s
+ * or touching the world otherwise. Writes that reach from one region into
+ * another are applied like they would be at runtime; writes reaching out of
+ * the rectangle are dropped. All generated tiles of the rectangle are kept in
+ * memory until they are written, roughly 16 KiB per region.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class WorldPreGenerator {
+    
+    private static final Logger LOGGER = Logger.getLogger(WorldPreGenerator.class);
+    
+    private final TileWorld tileWorld;
+    private final StagedRegionGenerator generator;
+    private final RegionStore store;
+    
+    private int threads = Runtime.getRuntime().availableProcessors();
+    
+    public WorldPreGenerator(TileWorld tileWorld, RegionStore store) {
+        Util.ensureNonNull(store);
+        if (!(tileWorld.getGenerator() instanceof StagedRegionGenerator)) {
+            throw new IllegalArgumentException("Only worlds with a StagedRegionGenerator can be pre-generated");
+        }
+        this.tileWorld = tileWorld;
+        this.generator = (StagedRegionGenerator) tileWorld.getGenerator();
+        this.store = store;
+    }
+    
+    public WorldPreGenerator setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+    
+    public void generateAll() throws IOException {
+        generate(0, 0, this.tileWorld.getRegionArrayWidth() - 1, this.tileWorld.getRegionArrayHeight() - 1);
+    }
+    
+    /**
+     * Generates and writes all regions of a rectangle of region coordinates,
+     * clamped to the world.
+     *
+     * @param minRx smallest region x, inclusive
+     * @param minRy smallest region y, inclusive
+     * @param maxRx biggest region x, inclusive
+     * @param maxRy biggest region y, inclusive
+     * @throws IOException if a region could not be written
+     */
+    public void generate(int minRx, int minRy, int maxRx, int maxRy) throws IOException {
+        int x0 = Math.max(minRx, 0);
+        int y0 = Math.max(minRy, 0);
+        int width = Math.min(maxRx, this.tileWorld.getRegionArrayWidth() - 1) - x0 + 1;
+        int height = Math.min(maxRy, this.tileWorld.getRegionArrayHeight() - 1) - y0 + 1;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int count = width * height;
+        GenerationBuffer[] buffers = new GenerationBuffer[count];
+        AtomicInteger done = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        LOGGER.infof("Pre-generating %d regions with %d threads", count, this.threads);
+        long start = System.nanoTime();
+        try {
+            run(pool, count, (i) -> {
+                buffers[i] = this.generator.generateBuffer(x0 + i / height, y0 + i % height, this.tileWorld);
+                progress("Generated", done.incrementAndGet(), count, start);
+            });
+            long generated = System.nanoTime();
+            int dropped = dispatchOutsideWrites(buffers, x0, y0, width, height);
+            if (dropped > 0) {
+                LOGGER.warn(dropped + " writes reached out of the pre-generated area and were dropped");
+            }
+            done.set(0);
+            run(pool, count, (i) -> {
+                try {
+                    this.store.write(buffers[i]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progress("Written", done.incrementAndGet(), count, generated);
+            });
+            long end = System.nanoTime();
+            LOGGER.infof("Pre-generated %d regions in %.2fs: %.1f regions/s generating, %.1f regions/s overall", count,
+                    (end - start) / 1e9, count / ((generated - start) / 1e9), count / ((end - start) / 1e9));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private int dispatchOutsideWrites(GenerationBuffer[] buffers, int x0, int y0, int width, int height) {
+        int dropped = 0;
+        for (GenerationBuffer buffer : buffers) {
+            PendingWrites outside = buffer.getOutsideWrites();
+            if (outside == null) {
+                continue;
+            }
+            for (int i = 0; i < outside.size(); i++) {
+                int tx = outside.getX(i);
+                int ty = outside.getY(i);
+                if (!this.tileWorld.inBounds(tx, ty)) {
+                    continue;
+                }
+                int rx = Region.toGlobalRegion(tx) - x0;
+                int ry = Region.toGlobalRegion(ty) - y0;
+                if (rx < 0 || rx >= width || ry < 0 || ry >= height) {
+                    dropped++;
+                } else if (outside.isBackground(i)) {
+                    buffers[rx * height + ry].setTileBackground(outside.getTile(i), tx, ty);
+                } else {
+                    buffers[rx * height + ry].setTile(outside.getTile(i), tx, ty);
+                }
+            }
+        }
+        return dropped;
+    }
+    
+    private static void run(ForkJoinPool pool, int count, IntConsumer task) {
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pre-generating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    private static void progress(String what, int done, int count, long start) {
+        //roughly every 10%
+        int step = Math.max(1, count / 10);
+        if (done % step == 0 || done == count) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            LOGGER.infof("%s %d/%d regions (%.1f regions/s)", what, done, count, done / Math.max(seconds, 1e-9));
+        }
+    }
+}
@@ -9,6 +9,7 @@ import de.omnikryptec.ecs.system.AbstractComponentSystem;
 import de.omnikryptec.event.EventSubscription;
 import de.omnikryptec.util.math.Mathf;
 import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.core.Keys;
 import de.pcfreak9000.space.core.Space;
 import de.pcfreak9000.space.tileworld.PlanetCamera;
 import de.pcfreak9000.space.tileworld.TileWorld;
@@ -17,6 +18,9 @@ import de.pcfreak9000.space.tileworld.tile.Tile;
 
 public class CameraSystem extends AbstractComponentSystem {
     
+    //zoom factor per second while a zoom key is held
+    private static final float ZOOM_SPEED = 2;
+    
     private PlanetCamera playerCam;
     private TileWorld tileWorld;
     
@@ -35,14 +39,19 @@ public class CameraSystem extends AbstractComponentSystem {
     
     @Override
     public void update(IECSManager iecsManager, Time time) {
+        if (Keys.ZOOM_OUT.isPressed() != Keys.ZOOM_IN.isPressed()) {
+            float factor = (float) Math.pow(ZOOM_SPEED, Keys.ZOOM_OUT.isPressed() ? time.deltaf : -time.deltaf);
+            this.playerCam.setZoom(this.playerCam.getZoom() * factor);
+        }
         Vector2fc positionState = this.transformMapper.get(this.entities.get(0)).transform.worldspacePos();
-        float x = positionState.x() - this.playerCam.getWidth() / 2f;
-        float y = positionState.y() - this.playerCam.getHeight() / 2f;
+        float x = positionState.x() - this.playerCam.getWorldWidth() / 2f;
+        float y = positionState.y() - this.playerCam.getWorldHeight() / 2f;
         x = Mathf.max(0, x);
         y = Mathf.max(0, y);
-        x = Mathf.min(this.tileWorld.getWorldWidth() * Tile.TILE_SIZE - this.playerCam.getWidth(), x);
-        y = Mathf.min(this.tileWorld.getWorldHeight() * Tile.TILE_SIZE - this.playerCam.getHeight(), y);
-        this.playerCam.getCameraActual().getTransform().localspaceWrite().translation(-x, -y, 0);
+        x = Mathf.min(this.tileWorld.getWorldWidth() * Tile.TILE_SIZE - this.playerCam.getWorldWidth(), x);
+        y = Mathf.min(this.tileWorld.getWorldHeight() * Tile.TILE_SIZE - this.playerCam.getWorldHeight(), y);
+        this.playerCam.getCameraActual().getTransform().localspaceWrite().scaling(1 / this.playerCam.getZoom())
+                .translate(-x, -y, 0);
         
         //temporary wrap around
         TransformComponent tc = this.transformMapper.get(this.entities.get(0));
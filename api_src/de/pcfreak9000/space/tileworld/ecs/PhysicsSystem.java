@@ -21,6 +21,9 @@ import de.pcfreak9000.space.tileworld.TileWorld;
 import de.pcfreak9000.space.tileworld.WorldEvents;
 import de.pcfreak9000.space.tileworld.tile.Tile;
 import de.pcfreak9000.space.tileworld.tile.TileState;
+import de.pcfreak9000.space.util.metrics.GaugeGroup;
+import de.pcfreak9000.space.util.metrics.Histogram;
+import de.pcfreak9000.space.util.metrics.Metrics;
 
 public class PhysicsSystem extends AbstractComponentSystem {
     
@@ -29,6 +32,8 @@ public class PhysicsSystem extends AbstractComponentSystem {
     
     private static final float STEPSIZE_SECONDS = 1 / 100f;
     
+    private static final Histogram STEP = Metrics.histogram("physics.step");
+    
     private TileWorld tileWorld;
     private float deltaAcc = 0;
     
@@ -42,6 +47,10 @@ public class PhysicsSystem extends AbstractComponentSystem {
         Space.BUS.register(this);
     }
     
+    public void addGauges(GaugeGroup gauges) {
+        gauges.gauge("physics.bodies", () -> this.entities == null ? 0 : this.entities.size());
+    }
+    
     @Override
     public void update(IECSManager iecsManager, Time time) {
         this.deltaAcc += time.deltaf;
@@ -51,13 +60,23 @@ public class PhysicsSystem extends AbstractComponentSystem {
         }
         while (deltaAcc >= STEPSIZE_SECONDS) {
             deltaAcc -= STEPSIZE_SECONDS;
-            for (Entity e : entities) {
-                updateIndividual(iecsManager, e, time);
-            }
+            step();
+        }
+    }
+    
+    /**
+     * Advances all entities by one fixed physics step, independent of the
+     * frame time.
+     */
+    public void step() {
+        long start = Metrics.start();
+        for (Entity e : entities) {
+            updateIndividual(e);
         }
+        STEP.recordSince(start);
     }
     
-    private void updateIndividual(IECSManager manager, Entity entity, Time time) {
+    private void updateIndividual(Entity entity) {
         TransformComponent tc = this.transformMapper.get(entity);
         PhysicsComponent pc = this.physicsMapper.get(entity);
         
@@ -0,0 +1,173 @@
+package de.pcfreak9000.space.tileworld.ecs;
+
+import org.joml.Vector2f;
+
+import de.omnikryptec.core.Omnikryptec;
+import de.omnikryptec.ecs.Entity;
+import de.omnikryptec.ecs.IECSManager;
+import de.omnikryptec.render3.d2.sprites.Sprite;
+import de.omnikryptec.util.math.Mathf;
+import de.pcfreak9000.space.tileworld.FluidLayer;
+import de.pcfreak9000.space.tileworld.Region;
+import de.pcfreak9000.space.tileworld.TileEdit;
+import de.pcfreak9000.space.tileworld.TileWorld;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * The things a player can do to a world, shared by the keyboard input and
+ * {@link PlayerScript}s. Remembers the last broken tile, which is what
+ * {@link #build(int, int)} places.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class PlayerActions {
+    
+    /**
+     * Downwards acceleration of a player, in world units per second squared.
+     */
+    public static final float GRAVITY = 98.1f;
+    
+    /**
+     * Acceleration against the movement of a player, per unit of velocity.
+     */
+    public static final float DRAG = 1.5f;
+    
+    private final boolean render;
+    
+    private TileWorld world;
+    private Tile held = null;
+    
+    /**
+     * @param render whether created entities get a {@link RenderComponent}
+     */
+    public PlayerActions(boolean render) {
+        this.render = render;
+    }
+    
+    public void setWorld(TileWorld world) {
+        this.world = world;
+    }
+    
+    public TileWorld getWorld() {
+        return this.world;
+    }
+    
+    public Tile getHeldTile() {
+        return this.held;
+    }
+    
+    /**
+     * Breaks a single tile.
+     *
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return whether a tile was broken
+     */
+    public boolean destroy(int tx, int ty) {
+        Region r = this.world.requestRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        if (r != null) {
+            Tile t = r.getTile(tx, ty);
+            if (t != null && t.canBreak()) {
+                this.held = t;
+                r.setTile(Tile.EMPTY, tx, ty);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Places the last broken tile into an empty spot.
+     *
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return whether a tile was placed
+     */
+    public boolean build(int tx, int ty) {
+        Region r = this.world.requestRegion(Region.toGlobalRegion(tx), Region.toGlobalRegion(ty));
+        if (r != null && this.held != null) {
+            if (r.getTile(tx, ty) == null || r.getTile(tx, ty) == Tile.EMPTY) {
+                r.setTile(this.held, tx, ty);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Pours a full tile of fluid into a spot that is not solid.
+     *
+     * @param tx global tile x
+     * @param ty global tile y
+     * @return whether fluid was poured
+     */
+    public boolean pour(int tx, int ty) {
+        Tile t = this.world.getTileIfGenerated(tx, ty);
+        if (t != null && !t.isSolid()) {
+            this.world.addFluid(tx, ty, FluidLayer.FULL);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Breaks all breakable tiles in a circle, as one {@link TileEdit}.
+     *
+     * @param txm    global tile x of the center
+     * @param tym    global tile y of the center
+     * @param radius the radius in tiles
+     */
+    public void explode(int txm, int tym, int radius) {
+        TileEdit edit = this.world.edit();
+        for (int i = -radius; i <= radius; i++) {
+            for (int j = -radius; j <= radius; j++) {
+                if (Mathf.square(i) + Mathf.square(j) <= Mathf.square(radius)) {
+                    int tx = txm + i;
+                    int ty = tym + j;
+                    Tile t = this.world.getTile(tx, ty);
+                    if (t != null && t.canBreak()) {
+                        this.held = t;
+                        edit.set(Tile.EMPTY, tx, ty);
+                    }
+                    
+                }
+            }
+        }
+        edit.commit();
+    }
+    
+    /**
+     * Fires a bouncing projectile from the center of a body.
+     *
+     * @param manager the manager to add the projectile to
+     * @param from    the shooting body
+     * @param dirX    x of the direction
+     * @param dirY    y of the direction
+     * @return the projectile
+     */
+    public Entity shoot(IECSManager manager, PhysicsComponent from, float dirX, float dirY) {
+        Vector2f vec = new Vector2f(dirX, dirY).normalize();
+        Entity ent = new Entity();
+        PhysicsComponent epc = new PhysicsComponent();
+        epc.velocity.set(vec).mul(150);
+        epc.w = 10;
+        epc.h = 10;
+        epc.restitution = 0.9f;
+        if (this.render) {
+            Sprite sprite = new Sprite();
+            //AdvancedSprite sprite = new AdvancedSprite();
+            sprite.getTransform().localspaceWrite().scale(10);
+            sprite.getRenderData().setUVAndTexture(Omnikryptec.getTexturesS().get("sdfgsdfsdf"));
+            sprite.setLayer(50);
+            RenderComponent rendComp = new RenderComponent(sprite);
+            ent.addComponent(rendComp);
+        }
+        ent.addComponent(epc);
+        TransformComponent trans = new TransformComponent();
+        trans.transform.localspaceWrite().setTranslation(from.x + from.w / 2, from.y + from.h / 2);
+        ent.addComponent(trans);
+        manager.addEntity(ent);
+        return ent;
+    }
+}
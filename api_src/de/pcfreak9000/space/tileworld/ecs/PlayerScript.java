@@ -0,0 +1,29 @@
+package de.pcfreak9000.space.tileworld.ecs;
+
+import de.omnikryptec.ecs.IECSManager;
+import de.omnikryptec.util.updater.Time;
+
+/**
+ * Replaces the keyboard for a player entity, e.g. in a headless simulation.
+ * Called once per update before the physics step, with gravity already set as
+ * the acceleration of the body. Changes to the world go through the
+ * {@link PlayerActions}, like they do for the keyboard input.
+ *
+ * @author pcfreak9000
+ *
+ */
+@FunctionalInterface
+public interface PlayerScript {
+    
+    void update(IECSManager manager, PlayerActions actions, PhysicsComponent body, Time time);
+    
+    /**
+     * A script that walks sideways with a constant speed.
+     *
+     * @param speed the horizontal speed, negative walks to the left
+     * @return the script
+     */
+    static PlayerScript walk(float speed) {
+        return (manager, actions, body, time) -> body.velocity.x = speed;
+    }
+}
@@ -0,0 +1,12 @@
+package de.pcfreak9000.space.tileworld.ecs;
+
+import de.omnikryptec.ecs.component.Component;
+
+public class ScriptedPlayerComponent implements Component {
+    
+    public final PlayerScript script;
+    
+    public ScriptedPlayerComponent(PlayerScript script) {
+        this.script = script;
+    }
+}
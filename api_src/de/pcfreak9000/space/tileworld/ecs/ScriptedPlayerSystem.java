@@ -0,0 +1,51 @@
+package de.pcfreak9000.space.tileworld.ecs;
+
+import de.omnikryptec.ecs.Entity;
+import de.omnikryptec.ecs.Family;
+import de.omnikryptec.ecs.IECSManager;
+import de.omnikryptec.ecs.component.ComponentMapper;
+import de.omnikryptec.ecs.system.IterativeComponentSystem;
+import de.omnikryptec.event.EventSubscription;
+import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.core.Space;
+import de.pcfreak9000.space.tileworld.WorldEvents;
+
+/**
+ * Moves player entities by their {@link PlayerScript} instead of by input.
+ * Uses the same gravity and drag as the {@link PlayerInputSystem}. Projectiles
+ * of scripted players are not rendered.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class ScriptedPlayerSystem extends IterativeComponentSystem {
+    
+    private final ComponentMapper<ScriptedPlayerComponent> mapper = new ComponentMapper<>(
+            ScriptedPlayerComponent.class);
+    private final ComponentMapper<PhysicsComponent> physicsMapper = new ComponentMapper<>(PhysicsComponent.class);
+    
+    private final PlayerActions actions = new PlayerActions(false);
+    
+    public ScriptedPlayerSystem() {
+        super(Family.of(ScriptedPlayerComponent.class, PhysicsComponent.class));
+        Space.BUS.register(this);
+    }
+    
+    @EventSubscription
+    public void settwevent(WorldEvents.SetWorldEvent ev) {
+        this.actions.setWorld(ev.getTileWorldNew());
+    }
+    
+    @Override
+    public void updateIndividual(IECSManager manager, Entity entity, Time time) {
+        if (this.actions.getWorld() == null) {
+            return;
+        }
+        PhysicsComponent pc = this.physicsMapper.get(entity);
+        pc.acceleration.set(0, -PlayerActions.GRAVITY);
+        this.mapper.get(entity).script.update(manager, this.actions, pc, time);
+        pc.acceleration.sub(pc.velocity.x() * PlayerActions.DRAG, pc.velocity.y() * PlayerActions.DRAG,
+                pc.acceleration);
+    }
+    
+}
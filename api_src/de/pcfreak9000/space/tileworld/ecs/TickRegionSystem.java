@@ -1,25 +1,82 @@
 package de.pcfreak9000.space.tileworld.ecs;
 
-import de.omnikryptec.ecs.Entity;
+import java.util.ArrayList;
+import java.util.List;
+
 import de.omnikryptec.ecs.Family;
 import de.omnikryptec.ecs.IECSManager;
 import de.omnikryptec.ecs.component.ComponentMapper;
-import de.omnikryptec.ecs.system.IterativeComponentSystem;
+import de.omnikryptec.ecs.system.AbstractComponentSystem;
+import de.omnikryptec.event.EventSubscription;
 import de.omnikryptec.util.updater.Time;
+import de.pcfreak9000.space.core.Space;
+import de.pcfreak9000.space.tileworld.Region;
+import de.pcfreak9000.space.tileworld.TickBudget;
+import de.pcfreak9000.space.tileworld.TileWorld;
+import de.pcfreak9000.space.tileworld.WorldEvents;
+import de.pcfreak9000.space.util.metrics.GaugeGroup;
 
-public class TickRegionSystem extends IterativeComponentSystem {
+public class TickRegionSystem extends AbstractComponentSystem {
     
     private ComponentMapper<TickRegionComponent> tMapper = new ComponentMapper<>(TickRegionComponent.class);
     
+    private TileWorld world;
+    //the region the last update ran out of budget in, the next update starts there
+    private int cursor = 0;
+    private final List<Region> regions = new ArrayList<>();
+    
     public TickRegionSystem() {
         super(Family.of(TickRegionComponent.class));
-        
+        Space.BUS.register(this);
     }
-
+    
+    public void addGauges(GaugeGroup gauges) {
+        gauges.gauge("ecs.tickingRegions", () -> this.entities == null ? 0 : this.entities.size());
+    }
+    
+    @EventSubscription
+    public void settwevent(WorldEvents.SetWorldEvent ev) {
+        this.world = ev.getTileWorldNew();
+        this.cursor = 0;
+    }
+    
     @Override
-    public void updateIndividual(IECSManager manager, Entity entity, Time time) {
-        TickRegionComponent c = tMapper.get(entity);
-        c.region.tick(time);
+    public void update(IECSManager manager, Time time) {
+        if (this.world == null) {
+            return;
+        }
+        this.world.advanceTime(time.deltaf);
+        if (this.world.isParallelTicking()) {
+            this.regions.clear();
+            for (int i = 0; i < this.entities.size(); i++) {
+                this.regions.add(this.tMapper.get(this.entities.get(i)).region);
+            }
+            this.world.tickParallel(this.regions, time);
+        } else {
+            tickSequential(time);
+        }
+        this.world.getNeighbourUpdates().process();
+        this.world.getFallingTiles().update(time.deltaf);
+    }
+    
+    private void tickSequential(Time time) {
+        TickBudget budget = this.world.getTickBudget();
+        budget.begin();
+        int size = this.entities.size();
+        if (this.cursor >= size) {
+            this.cursor = 0;
+        }
+        //every region is ticked, the ones after the budget ran out only skip their tickables
+        int start = this.cursor;
+        boolean cut = false;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            TickRegionComponent c = this.tMapper.get(this.entities.get(index));
+            if (!c.region.tick(time, budget) && !cut) {
+                cut = true;
+                this.cursor = index;
+            }
+        }
     }
     
 }
@@ -0,0 +1,31 @@
+package de.pcfreak9000.space.tileworld.tile;
+
+/**
+ * A tile entity that is only ticked when it asks for it, instead of every
+ * frame like a {@link Tickable}. It gets its first tick in the update after it
+ * has been created, after that it decides itself when to wake up next. Others
+ * can wake it up earlier with
+ * {@link de.pcfreak9000.space.tileworld.TileWorld#scheduleTick(TileState, float)}.
+ * <br>
+ * Ticks only happen while the region of the tile is loaded. A tick that became
+ * due while it was not loaded runs once it is loaded again, with all the
+ * elapsed time at once.
+ *
+ * @author pcfreak9000
+ *
+ */
+public interface ScheduledTickable {
+    
+    /**
+     * Returned by {@link #scheduledTick(float)} to sleep until woken up.
+     */
+    float SLEEP = -1;
+    
+    /**
+     * @param elapsed game time in seconds since the last tick, or since the
+     *                first tick was scheduled after creation or
+     *                {@link #SLEEP}. Waking up earlier does not reset it.
+     * @return seconds until the next tick, or {@link #SLEEP}
+     */
+    float scheduledTick(float elapsed);
+}
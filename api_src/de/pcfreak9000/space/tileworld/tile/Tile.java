@@ -1,10 +1,15 @@
 package de.pcfreak9000.space.tileworld.tile;
 
+import java.util.Random;
+
 import de.omnikryptec.libapi.exposed.render.Texture;
+import de.omnikryptec.resource.TextureConfig;
+import de.omnikryptec.resource.TextureConfig.WrappingMode;
 import de.omnikryptec.resource.helper.TextureHelper;
 import de.omnikryptec.util.data.Color;
 import de.omnikryptec.util.math.Mathd;
 import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.tileworld.RegionLod;
 import de.pcfreak9000.space.tileworld.TileWorld;
 import de.pcfreak9000.space.util.RegisterSensitive;
 
@@ -17,6 +22,9 @@ public class Tile {
     
     public static final float TILE_SIZE = 16 * 1.5f;
     
+    //Repeating is needed to draw merged runs of tiles as a single instance
+    private static final TextureConfig TILE_TEXTURE_CONFIG = new TextureConfig().wrappingMode(WrappingMode.Repeat);
+    
     public static int toGlobalTile(float x) {
         return (int) Mathd.floor(x / (double) TILE_SIZE);
     }
@@ -37,10 +45,13 @@ public class Tile {
     
     private String textureName = null;
     private Texture texture = null;
+    private TileAtlas.UVRect atlasRect = null;
+    private int averageTextureColor = 0xFFFFFFFF;
     
     private boolean canBreak = true;
     private boolean opaque = false;
     private boolean solid = true;
+    private boolean affectedByGravity = false;
     
     private final Color color = new Color();
     
@@ -56,10 +67,43 @@ public class Tile {
         this.textureName = name;
     }
     
+    public String getTextureName() {
+        return this.textureName;
+    }
+    
     public Texture getTexture() {
         return this.texture;
     }
     
+    void setAtlasRect(TileAtlas.UVRect rect) {
+        this.atlasRect = rect;
+    }
+    
+    /**
+     * The area of this tile's texture in the {@link TileAtlas}.
+     *
+     * @return the atlas area or null if this tile is not in the atlas
+     */
+    public TileAtlas.UVRect getAtlasRect() {
+        return this.atlasRect;
+    }
+    
+    void setAverageTextureColor(int argb) {
+        this.averageTextureColor = argb;
+    }
+    
+    /**
+     * The colour of this tile when it is drawn as part of a downsampled
+     * {@link RegionLod}, i.e. its colour multiplied with the average colour of
+     * its texture.
+     *
+     * @return packed ARGB colour
+     */
+    public int getLodColor() {
+        return RegionLod.multiply(this.averageTextureColor, this.color.getR(), this.color.getG(), this.color.getB(),
+                this.color.getA());
+    }
+    
     public void setBouncyness(float b) {
         this.bouncyness = b;
     }
@@ -92,6 +136,20 @@ public class Tile {
         return this.solid;
     }
     
+    /**
+     * Makes tiles of this type fall down when the tile below them is not
+     * solid, see {@link de.pcfreak9000.space.tileworld.FallingTiles}.
+     *
+     * @param b affected by gravity
+     */
+    public void setAffectedByGravity(boolean b) {
+        this.affectedByGravity = b;
+    }
+    
+    public boolean isAffectedByGravity() {
+        return this.affectedByGravity;
+    }
+    
     public void setLightColor(Color color) {
         this.lightColor = color;
     }
@@ -138,7 +196,7 @@ public class Tile {
     
     public void init(TextureHelper tileTextures) {
         if (this.textureName != null) {
-            this.texture = tileTextures.get(this.textureName);
+            this.texture = tileTextures.get(this.textureName, TILE_TEXTURE_CONFIG);
         }
     }
     
@@ -150,8 +208,44 @@ public class Tile {
         return null;
     }
     
-    public void neighbourChanged(TileWorld world, TileState neighbour) {
-        //?!?!?!?
+    /**
+     * Whether tiles of this type get random ticks. The world picks a few random
+     * tiles of every loaded region each second, see
+     * {@link TileWorld#setRandomTickRate(float)}, so any single tile is ticked
+     * rarely and at random intervals. Meant for slow processes like growth,
+     * where per tile scheduling isn't worth it.
+     *
+     * @return random ticks wanted
+     */
+    public boolean hasRandomTick() {
+        return false;
+    }
+    
+    public void randomTick(TileWorld world, TileState myState, Random random) {
+    }
+    
+    /**
+     * Whether tiles of this type are told about changes of their four direct
+     * neighbours, see
+     * {@link #neighbourChanged(TileWorld, TileState, TileState)}.
+     *
+     * @return neighbour updates wanted
+     */
+    public boolean hasNeighbourUpdates() {
+        return false;
+    }
+    
+    /**
+     * Called some time after a direct neighbour of a tile of this type has
+     * changed, at the latest in the next update unless the world has a large
+     * backlog, see {@link de.pcfreak9000.space.tileworld.NeighbourUpdates}.
+     * Several changes of the same neighbour in between are reported once.
+     *
+     * @param world     the world
+     * @param myState   the tile state of the notified tile
+     * @param neighbour the current tile state of the changed neighbour
+     */
+    public void neighbourChanged(TileWorld world, TileState myState, TileState neighbour) {
     }
     
     @Override
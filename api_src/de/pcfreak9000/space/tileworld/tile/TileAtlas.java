@@ -0,0 +1,189 @@
+package de.pcfreak9000.space.tileworld.tile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.omnikryptec.libapi.exposed.Deletable;
+import de.omnikryptec.libapi.exposed.LibAPIManager;
+import de.omnikryptec.libapi.exposed.render.Texture;
+import de.omnikryptec.resource.TextureConfig;
+import de.omnikryptec.resource.TextureData;
+import de.omnikryptec.resource.loadervpc.ResourceProvider;
+import de.omnikryptec.util.Logger;
+import de.pcfreak9000.space.util.RectanglePacker;
+import de.pcfreak9000.space.util.RectanglePacker.Placement;
+
+/**
+ * All tile textures packed into a single texture, so tile caches can be drawn
+ * without switching textures. Rebuilt every time resources are assigned, the
+ * previous atlas texture is deleted then.<br>
+ * Packing, the pixel copy and the texture coordinates don't need a GL context,
+ * only the upload of the packed pixels does.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class TileAtlas {
+    
+    public static class UVRect {
+        
+        public final Texture texture;
+        public final float u0;
+        public final float v0;
+        public final float u1;
+        public final float v1;
+        
+        private UVRect(Texture texture, float u0, float v0, float u1, float v1) {
+            this.texture = texture;
+            this.u0 = u0;
+            this.v0 = v0;
+            this.u1 = u1;
+            this.v1 = v1;
+        }
+    }
+    
+    private static final Logger LOGGER = Logger.getLogger(TileAtlas.class);
+    
+    //Extruded edge pixels around every texture so filtering does not bleed into the neighbours
+    public static final int PADDING = 2;
+    public static final int MAX_SIZE = 4096;
+    
+    private static final int BYTES_PER_PIXEL = 4;
+    
+    private static final TextureConfig ATLAS_CONFIG = new TextureConfig();
+    
+    private Texture texture;
+    
+    public void build(Collection<Tile> tiles, ResourceProvider resources) {
+        Map<String, TextureData> datas = new LinkedHashMap<>();
+        for (Tile t : tiles) {
+            String name = t.getTextureName();
+            if (name != null && !datas.containsKey(name)) {
+                TextureData data = resources.get(TextureData.class, name);
+                if (data == null) {
+                    LOGGER.warn("Missing tile texture: " + name);
+                } else {
+                    datas.put(name, data);
+                }
+            }
+        }
+        List<TextureData> list = new ArrayList<>(datas.values());
+        int[] widths = new int[list.size()];
+        int[] heights = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            widths[i] = list.get(i).getWidth();
+            heights[i] = list.get(i).getHeight();
+        }
+        RectanglePacker packer = new RectanglePacker(PADDING, MAX_SIZE);
+        Placement[] placements = packer.pack(widths, heights);
+        int width = packer.getWidth();
+        int height = packer.getHeight();
+        ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * BYTES_PER_PIXEL).order(ByteOrder.nativeOrder());
+        Map<String, Integer> averages = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, TextureData> e : datas.entrySet()) {
+            TextureData data = e.getValue();
+            blit(data.getBuffer(), data.getWidth(), data.getHeight(), pixels, width, placements[index].x,
+                    placements[index].y, PADDING);
+            averages.put(e.getKey(), averageColor(data.getBuffer(), data.getWidth() * data.getHeight()));
+            index++;
+        }
+        //the TextureHelper does not know this texture, so a resource reload does not delete it
+        if (this.texture instanceof Deletable) {
+            ((Deletable) this.texture).deleteAndUnregister();
+        }
+        this.texture = LibAPIManager.instance().getGLFactory()
+                .createTexture2D(new TextureData(pixels, width, height), ATLAS_CONFIG);
+        float[] uvs = uvs(placements, width, height);
+        Map<String, UVRect> rects = new LinkedHashMap<>();
+        int i = 0;
+        for (String name : datas.keySet()) {
+            rects.put(name, new UVRect(this.texture, uvs[i * 4], uvs[i * 4 + 1], uvs[i * 4 + 2], uvs[i * 4 + 3]));
+            i++;
+        }
+        for (Tile t : tiles) {
+            t.setAtlasRect(t.getTextureName() == null ? null : rects.get(t.getTextureName()));
+            Integer average = t.getTextureName() == null ? null : averages.get(t.getTextureName());
+            t.setAverageTextureColor(average == null ? 0xFFFFFFFF : average);
+        }
+        LOGGER.info(String.format("Packed %d tile textures into a %dx%d atlas", list.size(), width, height));
+    }
+    
+    public Texture getTexture() {
+        return this.texture;
+    }
+    
+    /**
+     * The texture coordinates of packed rectangles, without their padding.
+     *
+     * @param placements the placements of the rectangles
+     * @param width      the width of the packed area
+     * @param height     the height of the packed area
+     * @return u0, v0, u1 and v1 of every rectangle, in the order of the
+     *         placements
+     */
+    public static float[] uvs(Placement[] placements, int width, int height) {
+        float[] uvs = new float[placements.length * 4];
+        for (int i = 0; i < placements.length; i++) {
+            Placement p = placements[i];
+            uvs[i * 4] = p.x / (float) width;
+            uvs[i * 4 + 1] = p.y / (float) height;
+            uvs[i * 4 + 2] = (p.x + p.width) / (float) width;
+            uvs[i * 4 + 3] = (p.y + p.height) / (float) height;
+        }
+        return uvs;
+    }
+    
+    /**
+     * Averages RGBA pixels.
+     *
+     * @param pixels RGBA pixels
+     * @param count  the amount of pixels
+     * @return the packed ARGB average
+     */
+    public static int averageColor(ByteBuffer pixels, int count) {
+        long[] sums = new long[BYTES_PER_PIXEL];
+        for (int p = 0; p < count; p++) {
+            for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+                sums[c] += pixels.get(p * BYTES_PER_PIXEL + c) & 0xFF;
+            }
+        }
+        if (count == 0) {
+            return 0xFFFFFFFF;
+        }
+        return (int) ((sums[3] / count) << 24 | (sums[0] / count) << 16 | (sums[1] / count) << 8 | sums[2] / count);
+    }
+    
+    /**
+     * Copies RGBA pixels into a bigger image and extrudes the edge pixels of the
+     * source into a border of the given size around it.
+     *
+     * @param src       source pixels
+     * @param srcWidth  source width
+     * @param srcHeight source height
+     * @param dst       destination pixels
+     * @param dstWidth  destination width
+     * @param x         x position of the source in the destination
+     * @param y         y position of the source in the destination
+     * @param border    size of the extruded border
+     */
+    public static void blit(ByteBuffer src, int srcWidth, int srcHeight, ByteBuffer dst, int dstWidth, int x, int y,
+            int border) {
+        for (int j = -border; j < srcHeight + border; j++) {
+            int sy = Math.min(Math.max(j, 0), srcHeight - 1);
+            for (int i = -border; i < srcWidth + border; i++) {
+                int sx = Math.min(Math.max(i, 0), srcWidth - 1);
+                int srcIndex = (sy * srcWidth + sx) * BYTES_PER_PIXEL;
+                int dstIndex = ((y + j) * dstWidth + x + i) * BYTES_PER_PIXEL;
+                for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+                    dst.put(dstIndex + c, src.get(srcIndex + c));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.pcfreak9000.space.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Packs rectangles into a square-ish power of two sized area using shelves.
+ * Every rectangle is surrounded by a padding border that is also reserved in
+ * the packed area. Does not depend on any rendering state.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class RectanglePacker {
+    
+    public static class Placement {
+        
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        
+        private Placement(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Placement[x=%d, y=%d, w=%d, h=%d]", this.x, this.y, this.width, this.height);
+        }
+    }
+    
+    private final int padding;
+    private final int maxSize;
+    
+    private int width;
+    private int height;
+    
+    public RectanglePacker(int padding, int maxSize) {
+        if (padding < 0) {
+            throw new IllegalArgumentException("Negative padding: " + padding);
+        }
+        this.padding = padding;
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * Packs the given rectangles. The placements are in the same order as the
+     * input and refer to the inner area of a rectangle, i.e. without the
+     * padding.
+     *
+     * @param widths  the widths of the rectangles
+     * @param heights the heights of the rectangles
+     * @return the placements
+     * @throws IllegalStateException if the rectangles don't fit into the maximum
+     *                               size
+     */
+    public Placement[] pack(int[] widths, int[] heights) {
+        if (widths.length != heights.length) {
+            throw new IllegalArgumentException("Different amount of widths and heights");
+        }
+        int n = widths.length;
+        Integer[] order = new Integer[n];
+        long area = 0;
+        int widest = 1;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            area += (long) (widths[i] + 2 * this.padding) * (heights[i] + 2 * this.padding);
+            widest = Math.max(widest, widths[i] + 2 * this.padding);
+        }
+        //Highest first gives the least wasted space per shelf
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> heights[i]).reversed());
+        int size = Math.max(nextPowerOfTwo(widest), nextPowerOfTwo((int) Math.ceil(Math.sqrt(area))));
+        while (size <= this.maxSize) {
+            Placement[] result = tryPack(widths, heights, order, size);
+            if (result != null) {
+                return result;
+            }
+            size *= 2;
+        }
+        throw new IllegalStateException("Rectangles don't fit into " + this.maxSize + "x" + this.maxSize);
+    }
+    
+    private Placement[] tryPack(int[] widths, int[] heights, Integer[] order, int size) {
+        Placement[] result = new Placement[widths.length];
+        int shelfY = 0;
+        int shelfHeight = 0;
+        int x = 0;
+        for (int i : order) {
+            int w = widths[i] + 2 * this.padding;
+            int h = heights[i] + 2 * this.padding;
+            if (x + w > size) {
+                shelfY += shelfHeight;
+                shelfHeight = 0;
+                x = 0;
+            }
+            if (shelfY + h > size) {
+                return null;
+            }
+            result[i] = new Placement(x + this.padding, shelfY + this.padding, widths[i], heights[i]);
+            x += w;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+        this.width = size;
+        this.height = nextPowerOfTwo(Math.max(1, shelfY + shelfHeight));
+        return result;
+    }
+    
+    /**
+     * The width of the area used by the last successful {@link #pack(int[], int[])}.
+     *
+     * @return the packed width
+     */
+    public int getWidth() {
+        return this.width;
+    }
+    
+    /**
+     * The height of the area used by the last successful {@link #pack(int[], int[])}.
+     *
+     * @return the packed height
+     */
+    public int getHeight() {
+        return this.height;
+    }
+    
+    private static int nextPowerOfTwo(int i) {
+        return i <= 1 ? 1 : Integer.highestOneBit(i - 1) << 1;
+    }
+}
@@ -0,0 +1,38 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, e.g. of physics steps. Thread safe and
+ * uncontended. Does nothing while {@link Metrics} are disabled.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class Counter {
+    
+    private final LongAdder value = new LongAdder();
+    
+    Counter() {
+    }
+    
+    public void increment() {
+        if (Metrics.isEnabled()) {
+            this.value.increment();
+        }
+    }
+    
+    public void add(long amount) {
+        if (Metrics.isEnabled()) {
+            this.value.add(amount);
+        }
+    }
+    
+    public long get() {
+        return this.value.sum();
+    }
+    
+    void reset() {
+        this.value.reset();
+    }
+}
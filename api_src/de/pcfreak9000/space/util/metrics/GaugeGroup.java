@@ -0,0 +1,40 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * The gauges of one owner, e.g. a simulation, that are removed together when
+ * the owner is torn down, so the static registry of {@link Metrics} does not
+ * keep the owner alive. A gauge that another owner has replaced in the
+ * meantime is left alone.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class GaugeGroup {
+    
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+    
+    /**
+     * Registers a gauge, see {@link Metrics#gauge(String, LongSupplier)}.
+     *
+     * @param name     the name
+     * @param supplier supplies the current value
+     * @return this
+     */
+    public GaugeGroup gauge(String name, LongSupplier supplier) {
+        this.gauges.put(name, supplier);
+        Metrics.gauge(name, supplier);
+        return this;
+    }
+    
+    /**
+     * Removes all gauges of this group from the registry.
+     */
+    public void remove() {
+        this.gauges.forEach(Metrics::removeGauge);
+        this.gauges.clear();
+    }
+}
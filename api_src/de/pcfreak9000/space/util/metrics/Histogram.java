@@ -0,0 +1,101 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of non-negative values, usually durations in nanoseconds.
+ * Like an HDR histogram the buckets are log-linear: every power of two is
+ * split into {@link #SUB_BUCKETS} equally wide buckets, so any recorded value
+ * is known within about 3% without storing the values themselves. Recording is
+ * thread safe and lock free. Does nothing while {@link Metrics} are disabled.
+ * <br>
+ * Timing a section:
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * histogram.recordSince(start);
+ * </pre>
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class Histogram {
+    
+    static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    Histogram() {
+    }
+    
+    public void record(long value) {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts.incrementAndGet(bucketOf(value));
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+    
+    /**
+     * Records the nanoseconds since a {@link Metrics#start()}. Nothing is
+     * recorded if metrics were disabled at the start.
+     *
+     * @param start the value returned by {@link Metrics#start()}
+     */
+    public void recordSince(long start) {
+        if (start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+    
+    public HistogramSnapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = this.counts.get(i);
+        }
+        return new HistogramSnapshot(c, this.sum.sum(), this.max.get());
+    }
+    
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.sum.reset();
+        this.max.reset();
+    }
+    
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * @param bucket the bucket
+     * @return the largest value that falls into the bucket
+     */
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lowest + width - 1;
+    }
+}
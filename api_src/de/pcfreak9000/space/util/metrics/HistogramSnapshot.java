@@ -0,0 +1,86 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.Locale;
+
+/**
+ * The state of a {@link Histogram} at one point in time. Percentiles are the
+ * upper bound of the bucket they fall into, but never more than the maximum.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class HistogramSnapshot {
+    
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+    
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long c = 0;
+        for (long l : counts) {
+            c += l;
+        }
+        this.count = c;
+        this.sum = sum;
+        this.max = max;
+    }
+    
+    public long getCount() {
+        return this.count;
+    }
+    
+    public long getSum() {
+        return this.sum;
+    }
+    
+    public long getMax() {
+        return this.max;
+    }
+    
+    public double getMean() {
+        return this.count == 0 ? 0 : this.sum / (double) this.count;
+    }
+    
+    public long getP50() {
+        return percentile(50);
+    }
+    
+    public long getP90() {
+        return percentile(90);
+    }
+    
+    public long getP99() {
+        return percentile(99);
+    }
+    
+    public long getP999() {
+        return percentile(99.9);
+    }
+    
+    /**
+     * @param p the percentile, 0 to 100
+     * @return the value, 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(Histogram.highestOf(i), this.max);
+            }
+        }
+        return this.max;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d", this.count,
+                getMean(), getP50(), getP90(), getP99(), getP999(), this.max);
+    }
+}
@@ -0,0 +1,161 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import de.omnikryptec.util.Logger;
+
+/**
+ * The registry of all counters, gauges and histograms of the game. Metrics are
+ * created once, usually as static fields of the class they measure, and are
+ * looked up by name:
+ *
+ * <pre>
+ * private static final Counter STEPS = Metrics.counter("physics.steps");
+ * </pre>
+ *
+ * While disabled, recording costs a single volatile read and gauges are never
+ * evaluated. Gauges capture the object they read from, so they are registered
+ * by whoever owns that object, in a {@link GaugeGroup}. The current values are available with {@link #snapshot()} and
+ * live through JMX after {@link #registerMBean()}.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class Metrics {
+    
+    public static final String OBJECT_NAME = "de.pcfreak9000.space:type=Metrics";
+    
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class);
+    
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    
+    private static volatile boolean enabled = false;
+    
+    private Metrics() {
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean b) {
+        enabled = b;
+    }
+    
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, (n) -> new Counter());
+    }
+    
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, (n) -> new Histogram());
+    }
+    
+    /**
+     * Registers a value that is read when a snapshot is taken, e.g. a
+     * collection size. Replaces an existing gauge with the same name.
+     * Suppliers may be called from any thread.
+     *
+     * @param name     the name
+     * @param supplier supplies the current value
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        GAUGES.put(name, supplier);
+    }
+    
+    /**
+     * Removes a gauge, if it has not been replaced by another supplier. Gauges
+     * reading from an object that goes away have to be removed, see
+     * {@link GaugeGroup}.
+     *
+     * @param name     the name
+     * @param supplier the supplier it was registered with
+     */
+    public static void removeGauge(String name, LongSupplier supplier) {
+        GAUGES.remove(name, supplier);
+    }
+    
+    /**
+     * The start of a timed section, see {@link Histogram#recordSince(long)}.
+     *
+     * @return the current {@link System#nanoTime()}, or 0 if disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    public static MetricsSnapshot snapshot() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((n, c) -> counters.put(n, c.get()));
+        Map<String, Long> gauges = new TreeMap<>();
+        GAUGES.forEach((n, g) -> gauges.put(n, g.getAsLong()));
+        Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+        HISTOGRAMS.forEach((n, h) -> histograms.put(n, h.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), counters, gauges, histograms);
+    }
+    
+    /**
+     * Sets all counters and histograms back to zero.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+    
+    /**
+     * Exposes the metrics through the platform MBean server. Does nothing if
+     * they are already registered.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            //already registered
+        } catch (JMException e) {
+            LOGGER.warn("Could not register the metrics MBean: " + e);
+        }
+    }
+    
+    private static class MBean implements MetricsMXBean {
+        
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+        
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+        
+        @Override
+        public Map<String, Long> getCounters() {
+            return snapshot().getCounters();
+        }
+        
+        @Override
+        public Map<String, Long> getGauges() {
+            return snapshot().getGauges();
+        }
+        
+        @Override
+        public Map<String, HistogramSnapshot> getHistograms() {
+            return snapshot().getHistograms();
+        }
+        
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
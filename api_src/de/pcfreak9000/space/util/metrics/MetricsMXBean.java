@@ -0,0 +1,25 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link Metrics}, registered as
+ * {@value Metrics#OBJECT_NAME}.
+ *
+ * @author pcfreak9000
+ *
+ */
+public interface MetricsMXBean {
+    
+    boolean isEnabled();
+    
+    void setEnabled(boolean enabled);
+    
+    Map<String, Long> getCounters();
+    
+    Map<String, Long> getGauges();
+    
+    Map<String, HistogramSnapshot> getHistograms();
+    
+    void reset();
+}
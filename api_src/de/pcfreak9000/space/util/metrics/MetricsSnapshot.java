@@ -0,0 +1,60 @@
+package de.pcfreak9000.space.util.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of all {@link Metrics} at one point in time, sorted by name.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class MetricsSnapshot {
+    
+    private final long timeMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSnapshot> histograms;
+    
+    MetricsSnapshot(long timeMillis, Map<String, Long> counters, Map<String, Long> gauges,
+            Map<String, HistogramSnapshot> histograms) {
+        this.timeMillis = timeMillis;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+    
+    /**
+     * @return the wall clock time of the snapshot
+     */
+    public long getTimeMillis() {
+        return this.timeMillis;
+    }
+    
+    public Map<String, Long> getCounters() {
+        return this.counters;
+    }
+    
+    public Map<String, Long> getGauges() {
+        return this.gauges;
+    }
+    
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return this.histograms;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("Metrics:");
+        for (Map.Entry<String, Long> e : this.counters.entrySet()) {
+            b.append("\n  ").append(e.getKey()).append(" = ").append(e.getValue());
+        }
+        for (Map.Entry<String, Long> e : this.gauges.entrySet()) {
+            b.append("\n  ").append(e.getKey()).append(" = ").append(e.getValue());
+        }
+        for (Map.Entry<String, HistogramSnapshot> e : this.histograms.entrySet()) {
+            b.append("\n  ").append(e.getKey()).append(": ").append(e.getValue());
+        }
+        return b.toString();
+    }
+}
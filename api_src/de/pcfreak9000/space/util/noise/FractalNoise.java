@@ -0,0 +1,57 @@
+package de.pcfreak9000.space.util.noise;
+
+import de.omnikryptec.util.Util;
+
+/**
+ * Fractal Brownian motion: the sum of several octaves of another noise with
+ * increasing frequency and decreasing amplitude, normalized back to [-1, 1].
+ *
+ * @author pcfreak9000
+ *
+ */
+public class FractalNoise implements Noise2D {
+    
+    private final Noise2D noise;
+    private final int octaves;
+    private final double frequency;
+    private final double lacunarity;
+    private final double gain;
+    private final double normalization;
+    
+    public FractalNoise(Noise2D noise, int octaves, double frequency) {
+        this(noise, octaves, frequency, 2, 0.5);
+    }
+    
+    public FractalNoise(Noise2D noise, int octaves, double frequency, double lacunarity, double gain) {
+        Util.ensureNonNull(noise);
+        if (octaves < 1) {
+            throw new IllegalArgumentException("At least one octave is required: " + octaves);
+        }
+        this.noise = noise;
+        this.octaves = octaves;
+        this.frequency = frequency;
+        this.lacunarity = lacunarity;
+        this.gain = gain;
+        double amplitudes = 0;
+        double amplitude = 1;
+        for (int i = 0; i < octaves; i++) {
+            amplitudes += amplitude;
+            amplitude *= gain;
+        }
+        this.normalization = 1 / amplitudes;
+    }
+    
+    @Override
+    public double sample(double x, double y) {
+        double sum = 0;
+        double amplitude = 1;
+        double f = this.frequency;
+        for (int i = 0; i < this.octaves; i++) {
+            //offset the octaves so they don't all share the lattice origin
+            sum += amplitude * this.noise.sample(x * f + i * 19.19, y * f + i * 7.37);
+            amplitude *= this.gain;
+            f *= this.lacunarity;
+        }
+        return sum * this.normalization;
+    }
+}
@@ -0,0 +1,22 @@
+package de.pcfreak9000.space.util.noise;
+
+/**
+ * Deterministic coherent noise. Implementations are immutable and can be
+ * sampled from multiple threads.
+ *
+ * @author pcfreak9000
+ *
+ */
+public interface Noise2D {
+    
+    /**
+     * @param x x
+     * @param y y
+     * @return a value in [-1, 1]
+     */
+    double sample(double x, double y);
+    
+    default double sample(double x) {
+        return sample(x, 0);
+    }
+}
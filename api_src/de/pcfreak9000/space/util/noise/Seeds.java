@@ -0,0 +1,57 @@
+package de.pcfreak9000.space.util.noise;
+
+/**
+ * Stateless seed derivation and hashing. Everything here only depends on its
+ * arguments, so results are the same on every thread, in every run and in
+ * every order regions are generated in.
+ *
+ * @author pcfreak9000
+ *
+ */
+public final class Seeds {
+    
+    private Seeds() {
+    }
+    
+    /**
+     * Scrambles all bits of a value (the SplitMix64 finalizer).
+     *
+     * @param z the value
+     * @return the scrambled value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    public static long hash(long seed, int x, int y) {
+        return mix(seed ^ mix(((long) x << 32) | (y & 0xFFFFFFFFL)));
+    }
+    
+    /**
+     * The seed of a region, derived from the world seed and the region
+     * coordinates.
+     *
+     * @param worldSeed the seed of the world
+     * @param rx        region x
+     * @param ry        region y
+     * @return the seed of the region
+     */
+    public static long regionSeed(long worldSeed, int rx, int ry) {
+        return hash(mix(worldSeed), rx, ry);
+    }
+    
+    /**
+     * A value in [0, 1) for a position. Use this instead of a shared random for
+     * per tile decisions.
+     *
+     * @param seed the seed
+     * @param x    x
+     * @param y    y
+     * @return a value in [0, 1)
+     */
+    public static double random(long seed, int x, int y) {
+        return (hash(seed, x, y) >>> 11) * 0x1.0p-53;
+    }
+}
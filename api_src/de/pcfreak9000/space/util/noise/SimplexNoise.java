@@ -0,0 +1,51 @@
+package de.pcfreak9000.space.util.noise;
+
+/**
+ * 2D simplex noise. Gradients are picked by hashing the seed with the corner
+ * coordinates, so there is no permutation table and no period.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class SimplexNoise implements Noise2D {
+    
+    private static final double F2 = 0.5 * (Math.sqrt(3) - 1);
+    private static final double G2 = (3 - Math.sqrt(3)) / 6;
+    
+    private static final double[] GRAD_X = { 1, -1, 1, -1, 1, -1, 0, 0 };
+    private static final double[] GRAD_Y = { 1, 1, -1, -1, 0, 0, 1, -1 };
+    
+    private final long seed;
+    
+    public SimplexNoise(long seed) {
+        this.seed = Seeds.mix(seed);
+    }
+    
+    @Override
+    public double sample(double x, double y) {
+        double s = (x + y) * F2;
+        int i = (int) Math.floor(x + s);
+        int j = (int) Math.floor(y + s);
+        double t = (i + j) * G2;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 - 1 + 2 * G2;
+        double y2 = y0 - 1 + 2 * G2;
+        double n = corner(i, j, x0, y0) + corner(i + i1, j + j1, x1, y1) + corner(i + 1, j + 1, x2, y2);
+        return Math.max(-1, Math.min(1, 70 * n));
+    }
+    
+    private double corner(int i, int j, double x, double y) {
+        double t = 0.5 - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        int g = (int) (Seeds.hash(this.seed, i, j) & 7);
+        t *= t;
+        return t * t * (GRAD_X[g] * x + GRAD_Y[g] * y);
+    }
+}
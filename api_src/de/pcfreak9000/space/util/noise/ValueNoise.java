@@ -0,0 +1,39 @@
+package de.pcfreak9000.space.util.noise;
+
+/**
+ * Smoothly interpolated random values on the integer lattice.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class ValueNoise implements Noise2D {
+    
+    private final long seed;
+    
+    public ValueNoise(long seed) {
+        this.seed = Seeds.mix(seed);
+    }
+    
+    @Override
+    public double sample(double x, double y) {
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        double fx = smooth(x - x0);
+        double fy = smooth(y - y0);
+        double v00 = lattice(x0, y0);
+        double v10 = lattice(x0 + 1, y0);
+        double v01 = lattice(x0, y0 + 1);
+        double v11 = lattice(x0 + 1, y0 + 1);
+        double bottom = v00 + fx * (v10 - v00);
+        double top = v01 + fx * (v11 - v01);
+        return bottom + fy * (top - bottom);
+    }
+    
+    private double lattice(int x, int y) {
+        return Seeds.random(this.seed, x, y) * 2 - 1;
+    }
+    
+    private static double smooth(double t) {
+        return t * t * (3 - 2 * t);
+    }
+}
@@ -0,0 +1,50 @@
+package de.pcfreak9000.space.tileworld;
+
+import de.omnikryptec.util.data.Color;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Deterministic worlds and tiles shared by the benchmarks. Nothing here needs
+ * a window or a rendering context.
+ *
+ * @author pcfreak9000
+ *
+ */
+public class BenchmarkWorlds {
+    
+    public static final long SEED = 42;
+    
+    public static final Tile STONE = new Tile();
+    public static final Tile LAMP = new Tile();
+    
+    static {
+        STONE.setOpaque(true);
+        LAMP.setLightColor(new Color(Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE, Tile.MAX_LIGHT_VALUE));
+    }
+    
+    /**
+     * A world that is solid stone below the given height and empty above.
+     *
+     * @param width   width in tiles
+     * @param height  height in tiles
+     * @param surface the first empty y
+     * @return the world
+     */
+    public static TileWorld flat(int width, int height, int surface) {
+        return new TileWorld(width, height, (region, tileWorld) -> {
+            GenerationBuffer buffer = new GenerationBuffer(region);
+            int stone = buffer.idOf(STONE);
+            for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                    int x = region.getGlobalTileX() + i;
+                    int y = region.getGlobalTileY() + j;
+                    if (y < surface && tileWorld.inBounds(x, y)) {
+                        buffer.setTile(stone, x, y);
+                        buffer.setTileBackground(stone, x, y);
+                    }
+                }
+            }
+            region.ingest(buffer);
+        });
+    }
+}
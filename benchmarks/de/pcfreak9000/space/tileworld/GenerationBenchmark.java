@@ -0,0 +1,79 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.mod.ModLoaderEvents;
+import dmod.DMod;
+
+/**
+ * Region generation with the generator of the dummy mod and a fixed seed.
+ *
+ * @author pcfreak9000
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+    
+    private static boolean modInitialized = false;
+    
+    private WorldGenerator generator;
+    private TileWorld world;
+    private int region;
+    
+    @Setup(Level.Trial)
+    public void setupMod() {
+        synchronized (GenerationBenchmark.class) {
+            if (!modInitialized) {
+                new DMod().init(new ModLoaderEvents.ModInitEvent());
+                modInitialized = true;
+            }
+        }
+        this.generator = GameRegistry.GENERATOR_REGISTRY.get("STS");
+    }
+    
+    @Setup(Level.Iteration)
+    public void setupWorld() {
+        this.world = this.generator.generateWorld(BenchmarkWorlds.SEED).getTileWorld();
+        this.region = 0;
+    }
+    
+    /**
+     * Runs the generation stages of one region without adding it to a world.
+     */
+    @Benchmark
+    public GenerationBuffer generateBuffer() {
+        StagedRegionGenerator staged = (StagedRegionGenerator) this.world.getGenerator();
+        int i = this.region++ % (this.world.getRegionArrayWidth() * this.world.getRegionArrayHeight());
+        return staged.generateBuffer(i / this.world.getRegionArrayHeight(), i % this.world.getRegionArrayHeight(),
+                this.world);
+    }
+    
+    /**
+     * Generates and ingests all regions of a fresh world, in parallel.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TileWorld generateWorld() {
+        TileWorld tileWorld = this.generator.generateWorld(BenchmarkWorlds.SEED).getTileWorld();
+        tileWorld.requestRegions(0, 0, tileWorld.getRegionArrayWidth() - 1, tileWorld.getRegionArrayHeight() - 1);
+        return tileWorld;
+    }
+}
@@ -0,0 +1,98 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.pcfreak9000.space.core.registry.GameRegistry;
+import de.pcfreak9000.space.mod.ModLoaderEvents;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import dmod.DMod;
+
+/**
+ * Headless check that the generator of the dummy mod does not depend on the
+ * thread or the order regions are generated in: the buffers of a rectangle of
+ * regions are generated serially and on the common fork-join pool, and a world
+ * requesting the regions one by one is compared with one using the parallel
+ * {@link TileWorld#requestRegions(int, int, int, int)}. Throws on the first
+ * mismatch.<br>
+ * Usage: {@code [regions x] [regions y]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class GenerationDeterminismCheck {
+    
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        new DMod().init(new ModLoaderEvents.ModInitEvent());
+        WorldGenerator generator = GameRegistry.GENERATOR_REGISTRY.get("STS");
+        TileWorld serial = generator.generateWorld(BenchmarkWorlds.SEED).getTileWorld();
+        TileWorld parallel = generator.generateWorld(BenchmarkWorlds.SEED).getTileWorld();
+        width = Math.min(width, serial.getRegionArrayWidth());
+        height = Math.min(height, serial.getRegionArrayHeight());
+        checkBuffers(serial, width, height);
+        for (int rx = 0; rx < width; rx++) {
+            for (int ry = 0; ry < height; ry++) {
+                serial.requestRegion(rx, ry);
+            }
+        }
+        parallel.requestRegions(0, 0, width - 1, height - 1);
+        for (int rx = 0; rx < width; rx++) {
+            for (int ry = 0; ry < height; ry++) {
+                Region a = serial.getRegion(rx, ry);
+                Region b = parallel.getRegion(rx, ry);
+                for (int x = a.getGlobalTileX(); x < a.getGlobalTileX() + Region.REGION_TILE_SIZE; x++) {
+                    for (int y = a.getGlobalTileY(); y < a.getGlobalTileY() + Region.REGION_TILE_SIZE; y++) {
+                        if (!a.inBounds(x, y)) {
+                            continue;
+                        }
+                        check(a.getTile(x, y) == b.getTile(x, y), "Tile (%d, %d) differs", x, y);
+                        check(a.getBackground(x, y) == b.getBackground(x, y), "Background (%d, %d) differs", x, y);
+                    }
+                }
+            }
+        }
+        System.out.println("GenerationDeterminismCheck passed for " + width + "x" + height + " regions");
+    }
+    
+    private static void checkBuffers(TileWorld world, int width, int height) {
+        StagedRegionGenerator staged = (StagedRegionGenerator) world.getGenerator();
+        List<int[]> coordinates = new ArrayList<>();
+        List<GenerationBuffer> serial = new ArrayList<>();
+        for (int rx = 0; rx < width; rx++) {
+            for (int ry = 0; ry < height; ry++) {
+                coordinates.add(new int[] { rx, ry });
+                serial.add(staged.generateBuffer(rx, ry, world));
+            }
+        }
+        List<GenerationBuffer> parallel = coordinates.parallelStream()
+                .map((c) -> staged.generateBuffer(c[0], c[1], world)).collect(Collectors.toList());
+        for (int k = 0; k < serial.size(); k++) {
+            GenerationBuffer a = serial.get(k);
+            GenerationBuffer b = parallel.get(k);
+            for (int i = 0; i < Region.REGION_TILE_SIZE; i++) {
+                for (int j = 0; j < Region.REGION_TILE_SIZE; j++) {
+                    //the palettes may be filled in a different order, so the tiles are compared
+                    for (boolean background : new boolean[] { false, true }) {
+                        Tile ta = a.byId(a.getLocal(background, i, j));
+                        Tile tb = b.byId(b.getLocal(background, i, j));
+                        check(ta == tb, "Buffer of region (%d, %d) differs at (%d, %d), background: %b",
+                                a.getGlobalRegionX(), a.getGlobalRegionY(), i, j, background);
+                    }
+                }
+            }
+            int outsideA = a.getOutsideWrites() == null ? 0 : a.getOutsideWrites().size();
+            int outsideB = b.getOutsideWrites() == null ? 0 : b.getOutsideWrites().size();
+            check(outsideA == outsideB, "Region (%d, %d) writes %d tiles outside of it serially and %d in parallel",
+                    a.getGlobalRegionX(), a.getGlobalRegionY(), outsideA, outsideB);
+        }
+    }
+    
+    private static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new IllegalStateException(String.format(message, args));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Locale;
+
+/**
+ * Measures the heap a number of ingested regions actually takes and compares
+ * it with {@link TileWorld#estimateMemory()}. The world is half stone with a
+ * lamp on every 16th surface tile, so the estimate covers full and empty
+ * regions, lights and background tiles. The heap is measured after forcing
+ * garbage collections, which is only reliable with a quiet JVM, e.g.
+ * {@code -Xms1g -Xmx1g}. Throws if the estimate is off by more than the
+ * tolerance.<br>
+ * Usage: {@code [regions x] [regions y] [tolerance]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class MemoryEstimateCheck {
+    
+    public static void main(String[] args) throws InterruptedException {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        int surface = height * Region.REGION_TILE_SIZE / 2 + Region.REGION_TILE_SIZE / 4;
+        TileWorld world = BenchmarkWorlds.flat(width * Region.REGION_TILE_SIZE, height * Region.REGION_TILE_SIZE,
+                surface);
+        long before = usedHeap();
+        world.requestRegions(0, 0, width - 1, height - 1);
+        TileEdit edit = world.edit();
+        for (int x = 0; x < world.getWorldWidth(); x += 16) {
+            edit.set(BenchmarkWorlds.LAMP, x, surface);
+        }
+        edit.commit();
+        long after = usedHeap();
+        RegionMemory estimate = world.estimateMemory();
+        long measured = after - before;
+        double ratio = estimate.getTotal() / (double) measured;
+        System.out.println(String.format(Locale.ROOT, "%d regions: measured %.1f KiB, estimated %.1f KiB (%.2fx)",
+                estimate.getRegionCount(), measured / 1024.0, estimate.getTotal() / 1024.0, ratio));
+        for (RegionMemory.Part p : RegionMemory.Part.values()) {
+            System.out.println(String.format(Locale.ROOT, "  %s: %.1f KiB", p, estimate.get(p) / 1024.0));
+        }
+        if (Math.abs(ratio - 1) > tolerance) {
+            throw new IllegalStateException(String.format(Locale.ROOT,
+                    "The estimate is off by %.0f%%, more than the tolerated %.0f%%", (ratio - 1) * 100,
+                    tolerance * 100));
+        }
+        System.out.println("MemoryEstimateCheck passed, " + world.getRegionArrayWidth() + "x"
+                + world.getRegionArrayHeight() + " regions");
+    }
+    
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        //the smallest value of a few collections, a single System.gc() is only a hint
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
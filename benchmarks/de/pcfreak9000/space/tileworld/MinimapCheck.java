@@ -0,0 +1,90 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageIO;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Headless check of the {@link Minimap}: the pixels of generated regions match
+ * their colour summaries, unexplored regions stay transparent, a tile change
+ * updates its pixel and the PNG export reads back to the same pixels. Throws
+ * on the first mismatch.<br>
+ * Usage: {@code [png output file]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class MinimapCheck {
+    
+    private static final int SURFACE = 100;
+    
+    public static void main(String[] args) throws IOException {
+        TileWorld world = BenchmarkWorlds.flat(8 * Region.REGION_TILE_SIZE, 4 * Region.REGION_TILE_SIZE, SURFACE);
+        //level 0, so a single tile change always changes its pixel
+        Minimap minimap = world.enableMinimap(0);
+        world.requestRegions(0, 0, 3, 3);
+        checkRegions(world, minimap);
+        check(!minimap.isExplored(5, 0) && minimap.getPixel(5 * Region.REGION_TILE_SIZE, 0) == 0,
+                "An unexplored region is on the minimap");
+        int before = minimap.getPixel(10, SURFACE - 1);
+        world.setTile(Tile.EMPTY, 10, SURFACE - 1);
+        check(minimap.getPixel(10, SURFACE - 1) != before, "Removing a tile did not change its pixel");
+        world.requestRegion(6, 1);
+        checkRegions(world, minimap);
+        //a minimap enabled later picks up the regions generated so far
+        checkRegions(world, world.enableMinimap(2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        minimap.writePng(out);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        check(image.getWidth() == minimap.getWidth() && image.getHeight() == minimap.getHeight(),
+                "The PNG is %dx%d instead of %dx%d", image.getWidth(), image.getHeight(), minimap.getWidth(),
+                minimap.getHeight());
+        for (int x = 0; x < minimap.getWidth(); x++) {
+            for (int y = 0; y < minimap.getHeight(); y++) {
+                //the image has its origin at the top left
+                int argb = image.getRGB(x, minimap.getHeight() - 1 - y);
+                check(argb == minimap.getPixel(x, y), "PNG pixel (%d, %d) is %08x instead of %08x", x, y, argb,
+                        minimap.getPixel(x, y));
+            }
+        }
+        if (args.length > 0) {
+            Files.write(Paths.get(args[0]), out.toByteArray());
+        }
+        System.out.println("MinimapCheck passed, " + out.size() + " bytes of PNG");
+    }
+    
+    private static void checkRegions(TileWorld world, Minimap minimap) {
+        int level = minimap.getLevel();
+        int size = RegionLod.getSize(level);
+        for (int rx = 0; rx < world.getRegionArrayWidth(); rx++) {
+            for (int ry = 0; ry < world.getRegionArrayHeight(); ry++) {
+                Region r = world.getRegion(rx, ry);
+                check((r != null) == minimap.isExplored(rx, ry), "Region (%d, %d) explored: %b", rx, ry, r != null);
+                if (r == null) {
+                    continue;
+                }
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        int x = (r.getGlobalTileX() >> level) + i;
+                        int y = (r.getGlobalTileY() >> level) + j;
+                        check(minimap.getPixel(x, y) == r.getLod().get(level, i, j),
+                                "Pixel (%d, %d) does not match region (%d, %d)", x, y, rx, ry);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new IllegalStateException(String.format(message, args));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Tile changes inside of a region that is surrounded by generated regions, so
+ * light propagation never generates anything while measuring.
+ *
+ * @author pcfreak9000
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+    
+    private static final int POSITIONS = 1024;
+    
+    private Region region;
+    private int[] xs;
+    private int[] ys;
+    private int index;
+    
+    @Setup
+    public void setup() {
+        TileWorld world = BenchmarkWorlds.flat(Region.REGION_TILE_SIZE * 3, Region.REGION_TILE_SIZE * 3,
+                Region.REGION_TILE_SIZE * 3 / 2);
+        world.requestRegions(0, 0, 2, 2);
+        this.region = world.requestRegion(1, 1);
+        Random random = new Random(BenchmarkWorlds.SEED);
+        this.xs = new int[POSITIONS];
+        this.ys = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            this.xs[i] = this.region.getGlobalTileX() + random.nextInt(Region.REGION_TILE_SIZE);
+            this.ys[i] = this.region.getGlobalTileY() + random.nextInt(Region.REGION_TILE_SIZE);
+        }
+    }
+    
+    private int next() {
+        this.index = (this.index + 1) & (POSITIONS - 1);
+        return this.index;
+    }
+    
+    @Benchmark
+    public Tile setTile() {
+        int i = next();
+        Tile t = (i & 1) == 0 ? BenchmarkWorlds.STONE : Tile.EMPTY;
+        return this.region.setTile(t, this.xs[i], this.ys[i]);
+    }
+    
+    @Benchmark
+    public Tile setTileWithLight() {
+        int i = next();
+        Tile t = (i & 1) == 0 ? BenchmarkWorlds.LAMP : Tile.EMPTY;
+        Tile old = this.region.setTile(t, this.xs[i], this.ys[i]);
+        this.region.resolveLights();
+        return old;
+    }
+    
+    /**
+     * Places a light and removes it again, resolving the light after each
+     * change: one full add and one full removal BFS.
+     */
+    @Benchmark
+    public void lightAddRemove() {
+        int i = next();
+        Tile old = this.region.setTile(BenchmarkWorlds.LAMP, this.xs[i], this.ys[i]);
+        this.region.resolveLights();
+        this.region.setTile(old, this.xs[i], this.ys[i]);
+        this.region.resolveLights();
+    }
+}
@@ -0,0 +1,145 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Headless check of the draw order of the sections of a
+ * {@link RegionTileCache}: random sections made of patches of a few tiles,
+ * some of them in the atlas, are planned with and without merging. Every tile
+ * must be covered by exactly one rectangle of its own kind, the atlas must come
+ * first and every texture must only be bound once per section. Also prints the
+ * texture binds per section compared to drawing the same rectangles row by
+ * row. Throws on the first mismatch.<br>
+ * Usage: {@code [sections] [tile kinds] [atlas kinds]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class SectionPlanCheck {
+    
+    private static final int SIZE = RegionTileCache.SECTION_TILE_SIZE;
+    
+    public static void main(String[] args) {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int kinds = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int atlasKinds = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        Tile[] tiles = new Tile[kinds];
+        String[] textures = new String[kinds];
+        for (int k = 0; k < kinds; k++) {
+            tiles[k] = new Tile();
+            textures[k] = "texture" + k;
+        }
+        Random random = new Random(BenchmarkWorlds.SEED);
+        SectionPlan plan = new SectionPlan(SIZE);
+        Tile[] section = new Tile[SIZE * SIZE];
+        for (boolean merge : new boolean[] { false, true }) {
+            long binds = 0;
+            long rowBinds = 0;
+            long rects = 0;
+            for (int s = 0; s < sections; s++) {
+                fill(section, tiles, random);
+                for (int i = 0; i < SIZE; i++) {
+                    for (int j = 0; j < SIZE; j++) {
+                        Tile t = section[i * SIZE + j];
+                        int k = t == null ? -1 : Arrays.asList(tiles).indexOf(t);
+                        plan.set(i, j, t, k >= 0 && k < atlasKinds ? "atlas" : null, k >= 0 ? textures[k] : null);
+                    }
+                }
+                int count = plan.plan(merge);
+                checkCoverage(plan, section);
+                checkOrder(plan);
+                binds += plan.countTextureBinds();
+                rowBinds += countRowBinds(plan);
+                rects += count;
+            }
+            System.out.println(String.format(Locale.ROOT,
+                    "merge: %b, %.1f rectangles, %.2f texture binds per section, %.2f if drawn row by row", merge,
+                    rects / (double) sections, binds / (double) sections, rowBinds / (double) sections));
+            check(binds <= rowBinds, "Sorting binds more textures than drawing row by row: %d > %d", binds,
+                    rowBinds);
+        }
+        System.out.println("SectionPlanCheck passed with " + sections + " sections");
+    }
+    
+    private static void fill(Tile[] section, Tile[] tiles, Random random) {
+        Arrays.fill(section, tiles[random.nextInt(tiles.length)]);
+        //patches of other tiles and some holes, like ores and caves
+        int patches = random.nextInt(12);
+        for (int p = 0; p < patches; p++) {
+            Tile t = random.nextInt(5) == 0 ? null : tiles[random.nextInt(tiles.length)];
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            int w = 1 + random.nextInt(6);
+            int h = 1 + random.nextInt(6);
+            for (int i = x; i < Math.min(x + w, SIZE); i++) {
+                for (int j = y; j < Math.min(y + h, SIZE); j++) {
+                    section[i * SIZE + j] = t;
+                }
+            }
+        }
+    }
+    
+    private static void checkCoverage(SectionPlan plan, Tile[] section) {
+        int[] covered = new int[SIZE * SIZE];
+        for (int r = 0; r < plan.getCount(); r++) {
+            for (int i = plan.getX(r); i < plan.getX(r) + plan.getWidth(r); i++) {
+                for (int j = plan.getY(r); j < plan.getY(r) + plan.getHeight(r); j++) {
+                    check(i < SIZE && j < SIZE, "Rectangle %d reaches outside of the section", r);
+                    check(section[i * SIZE + j] == plan.getTile(r), "Rectangle %d covers a different tile at (%d, %d)",
+                            r, i, j);
+                    covered[i * SIZE + j]++;
+                }
+            }
+        }
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            int expected = section[i] == null ? 0 : 1;
+            check(covered[i] == expected, "Tile (%d, %d) is covered %d times instead of %d", i / SIZE, i % SIZE,
+                    covered[i], expected);
+        }
+    }
+    
+    private static void checkOrder(SectionPlan plan) {
+        Set<Object> bound = new HashSet<>();
+        boolean atlasDone = false;
+        for (int r = 0; r < plan.getCount(); r++) {
+            if (plan.isInAtlas(r)) {
+                check(!atlasDone, "Rectangle %d is drawn from the atlas after other textures", r);
+                check(plan.getWidth(r) == 1 && plan.getHeight(r) == 1, "Merged rectangle %d uses the atlas", r);
+            } else {
+                atlasDone = true;
+            }
+            if (r == 0 || plan.getBind(r) != plan.getBind(r - 1)) {
+                check(bound.add(plan.getBind(r)), "%s is bound more than once", plan.getBind(r));
+            }
+        }
+    }
+    
+    //the binds of the order the rectangles were drawn in before sorting
+    private static int countRowBinds(SectionPlan plan) {
+        Integer[] order = new Integer[plan.getCount()];
+        for (int r = 0; r < order.length; r++) {
+            order[r] = r;
+        }
+        Arrays.sort(order, (a, b) -> plan.getY(a) != plan.getY(b) ? Integer.compare(plan.getY(a), plan.getY(b))
+                : Integer.compare(plan.getX(a), plan.getX(b)));
+        int binds = 0;
+        for (int r = 0; r < order.length; r++) {
+            if (r == 0 || plan.getBind(order[r]) != plan.getBind(order[r - 1])) {
+                binds++;
+            }
+        }
+        return binds;
+    }
+    
+    private static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new IllegalStateException(String.format(message, args));
+        }
+    }
+}
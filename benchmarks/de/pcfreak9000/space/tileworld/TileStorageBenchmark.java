@@ -0,0 +1,81 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.pcfreak9000.space.tileworld.tile.Tile;
+import de.pcfreak9000.space.tileworld.tile.TileState;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileStorageBenchmark {
+    
+    private static final int POSITIONS = 1024;
+    
+    private TileStorage storage;
+    private int[] xs;
+    private int[] ys;
+    private TileState[] states;
+    private List<TileState> output;
+    private int index;
+    
+    @Setup
+    public void setup() {
+        this.storage = new TileStorage(Region.REGION_TILE_SIZE, 0, 0);
+        Random random = new Random(BenchmarkWorlds.SEED);
+        this.xs = new int[POSITIONS];
+        this.ys = new int[POSITIONS];
+        this.states = new TileState[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            this.xs[i] = random.nextInt(Region.REGION_TILE_SIZE);
+            this.ys[i] = random.nextInt(Region.REGION_TILE_SIZE);
+            Tile t = random.nextBoolean() ? BenchmarkWorlds.STONE : Tile.EMPTY;
+            this.states[i] = new TileState(t, this.xs[i], this.ys[i]);
+            this.storage.set(this.states[i], this.xs[i], this.ys[i]);
+        }
+        this.output = new ArrayList<>();
+    }
+    
+    private int next() {
+        this.index = (this.index + 1) & (POSITIONS - 1);
+        return this.index;
+    }
+    
+    @Benchmark
+    public TileState get() {
+        int i = next();
+        return this.storage.get(this.xs[i], this.ys[i]);
+    }
+    
+    @Benchmark
+    public TileState set() {
+        int i = next();
+        return this.storage.set(this.states[i], this.xs[i], this.ys[i]);
+    }
+    
+    @Benchmark
+    public void getAABB(Blackhole blackhole) {
+        int i = next();
+        this.output.clear();
+        this.storage.getAABB(this.output, this.xs[i], this.ys[i], 4, 4, (t) -> t.getTile().isSolid());
+        blackhole.consume(this.output);
+    }
+}
@@ -0,0 +1,63 @@
+package de.pcfreak9000.space.tileworld;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.pcfreak9000.space.tileworld.tile.TileState;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileWorldBenchmark {
+    
+    private static final int POSITIONS = 1024;
+    private static final int SIZE = Region.REGION_TILE_SIZE * 4;
+    
+    private TileWorld world;
+    private int[] xs;
+    private int[] ys;
+    private List<TileState> output;
+    private int index;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = BenchmarkWorlds.flat(SIZE, SIZE, SIZE / 2);
+        this.world.requestRegions(0, 0, 3, 3);
+        Random random = new Random(BenchmarkWorlds.SEED);
+        this.xs = new int[POSITIONS];
+        this.ys = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            //around the surface, like the bodies in a world
+            this.xs[i] = random.nextInt(SIZE - 4);
+            this.ys[i] = SIZE / 2 - 8 + random.nextInt(16);
+        }
+        this.output = new ArrayList<>();
+    }
+    
+    @Benchmark
+    public void collectTileIntersections(Blackhole blackhole) {
+        this.index = (this.index + 1) & (POSITIONS - 1);
+        this.output.clear();
+        this.world.collectTileIntersections(this.output, this.xs[this.index], this.ys[this.index], 3, 3,
+                (t) -> t.getTile().isSolid());
+        blackhole.consume(this.output);
+    }
+}
@@ -0,0 +1,96 @@
+package de.pcfreak9000.space.tileworld.ecs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.omnikryptec.core.update.UpdateableFactory;
+import de.omnikryptec.ecs.Entity;
+import de.omnikryptec.ecs.IECSManager;
+import de.pcfreak9000.space.core.Space;
+import de.pcfreak9000.space.tileworld.BenchmarkWorlds;
+import de.pcfreak9000.space.tileworld.Region;
+import de.pcfreak9000.space.tileworld.TileWorld;
+import de.pcfreak9000.space.tileworld.World;
+import de.pcfreak9000.space.tileworld.WorldEvents;
+import de.pcfreak9000.space.tileworld.tile.Tile;
+
+/**
+ * Fixed physics steps of bodies falling onto and sliding over a flat world.
+ *
+ * @author pcfreak9000
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+    
+    private static final int SIZE = Region.REGION_TILE_SIZE * 4;
+    
+    @Param({ "1", "16", "256" })
+    public int bodies;
+    
+    private PhysicsSystem physics;
+    private PhysicsComponent[] physicsComponents;
+    private TransformComponent[] transforms;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        TileWorld tileWorld = BenchmarkWorlds.flat(SIZE, SIZE, SIZE / 2);
+        tileWorld.requestRegions(0, 0, 3, 3);
+        IECSManager ecs = UpdateableFactory.createDefaultIECSManager();
+        this.physics = new PhysicsSystem();
+        ecs.addSystem(this.physics);
+        Space.BUS.post(new WorldEvents.SetWorldEvent(null, null, new World(tileWorld, null)));
+        this.physicsComponents = new PhysicsComponent[this.bodies];
+        this.transforms = new TransformComponent[this.bodies];
+        for (int i = 0; i < this.bodies; i++) {
+            Entity e = new Entity();
+            this.physicsComponents[i] = new PhysicsComponent();
+            this.transforms[i] = new TransformComponent();
+            e.addComponent(this.physicsComponents[i]);
+            e.addComponent(this.transforms[i]);
+            ecs.addEntity(e);
+        }
+    }
+    
+    /**
+     * Puts the bodies back to the same starting positions, so every iteration
+     * measures the same motion.
+     */
+    @Setup(Level.Iteration)
+    public void placeBodies() {
+        Random random = new Random(BenchmarkWorlds.SEED);
+        for (int i = 0; i < this.bodies; i++) {
+            PhysicsComponent pc = this.physicsComponents[i];
+            pc.w = Tile.TILE_SIZE * 0.9f;
+            pc.h = Tile.TILE_SIZE * 1.9f;
+            pc.x = (4 + random.nextInt(SIZE - 8)) * Tile.TILE_SIZE;
+            pc.y = (SIZE / 2 + random.nextInt(8)) * Tile.TILE_SIZE;
+            pc.velocity.set(random.nextFloat() * 200 - 100, 0);
+            pc.acceleration.set(0, -98.1f);
+            this.transforms[i].transform.localspaceWrite().setTranslation(pc.x + pc.w / 2, pc.y + pc.h / 2);
+        }
+    }
+    
+    @Benchmark
+    public void step() {
+        this.physics.step();
+    }
+}
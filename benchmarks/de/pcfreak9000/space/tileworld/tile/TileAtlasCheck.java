@@ -0,0 +1,116 @@
+package de.pcfreak9000.space.tileworld.tile;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import de.pcfreak9000.space.tileworld.BenchmarkWorlds;
+import de.pcfreak9000.space.util.RectanglePacker;
+import de.pcfreak9000.space.util.RectanglePacker.Placement;
+
+/**
+ * Headless check of the parts of the {@link TileAtlas} that don't need a GL
+ * context: packing, texture coordinates, the extruded pixel copy and the
+ * average colour. Throws on the first mismatch.<br>
+ * Usage: {@code [rectangles]}
+ *
+ * @author pcfreak9000
+ *
+ */
+public class TileAtlasCheck {
+    
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        checkPacking(count);
+        checkTooBig();
+        checkBlit();
+        checkAverage();
+        System.out.println("TileAtlasCheck passed with " + count + " rectangles");
+    }
+    
+    private static void checkPacking(int count) {
+        Random random = new Random(BenchmarkWorlds.SEED);
+        int[] widths = new int[count];
+        int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            //mostly tile sized, some odd ones
+            widths[i] = random.nextInt(4) == 0 ? 1 + random.nextInt(100) : 16 << random.nextInt(3);
+            heights[i] = random.nextInt(4) == 0 ? 1 + random.nextInt(100) : 16 << random.nextInt(3);
+        }
+        RectanglePacker packer = new RectanglePacker(TileAtlas.PADDING, TileAtlas.MAX_SIZE);
+        Placement[] placements = packer.pack(widths, heights);
+        int width = packer.getWidth();
+        int height = packer.getHeight();
+        check(Integer.bitCount(width) == 1 && Integer.bitCount(height) == 1, "Size is not a power of two: %dx%d",
+                width, height);
+        int p = TileAtlas.PADDING;
+        for (int i = 0; i < count; i++) {
+            Placement a = placements[i];
+            check(a.width == widths[i] && a.height == heights[i], "Placement %d has the wrong size: %s", i, a);
+            check(a.x >= p && a.y >= p && a.x + a.width + p <= width && a.y + a.height + p <= height,
+                    "Placement %d with its padding is outside of %dx%d: %s", i, width, height, a);
+            for (int j = 0; j < i; j++) {
+                Placement b = placements[j];
+                boolean apart = a.x + a.width + p <= b.x - p || b.x + b.width + p <= a.x - p
+                        || a.y + a.height + p <= b.y - p || b.y + b.height + p <= a.y - p;
+                check(apart, "Placements %d and %d overlap including their padding: %s, %s", i, j, a, b);
+            }
+        }
+        float[] uvs = TileAtlas.uvs(placements, width, height);
+        for (int i = 0; i < count; i++) {
+            Placement a = placements[i];
+            //the packed sizes are powers of two, so the coordinates are exact
+            check(uvs[i * 4] * width == a.x && uvs[i * 4 + 1] * height == a.y, "UV origin %d is off: %s", i, a);
+            check(uvs[i * 4 + 2] * width == a.x + a.width && uvs[i * 4 + 3] * height == a.y + a.height,
+                    "UV end %d is off: %s", i, a);
+            check(uvs[i * 4 + 2] <= 1 && uvs[i * 4 + 3] <= 1, "UV %d is outside of the atlas: %s", i, a);
+        }
+    }
+    
+    private static void checkTooBig() {
+        RectanglePacker packer = new RectanglePacker(TileAtlas.PADDING, 64);
+        try {
+            packer.pack(new int[] { 64 }, new int[] { 1 });
+        } catch (IllegalStateException e) {
+            return;
+        }
+        throw new IllegalStateException("A rectangle wider than the maximum size with its padding was packed");
+    }
+    
+    private static void checkBlit() {
+        //2x2 source, every pixel a different colour
+        ByteBuffer src = ByteBuffer.allocate(2 * 2 * 4);
+        for (int i = 0; i < 4; i++) {
+            src.put(i * 4, (byte) (i * 60)).put(i * 4 + 1, (byte) i);
+            src.put(i * 4 + 2, (byte) 7).put(i * 4 + 3, (byte) 255);
+        }
+        int border = 2;
+        int dstWidth = 2 + 2 * border;
+        ByteBuffer dst = ByteBuffer.allocate(dstWidth * dstWidth * 4);
+        TileAtlas.blit(src, 2, 2, dst, dstWidth, border, border, border);
+        for (int y = 0; y < dstWidth; y++) {
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = Math.min(Math.max(x - border, 0), 1);
+                int sy = Math.min(Math.max(y - border, 0), 1);
+                for (int c = 0; c < 4; c++) {
+                    check(dst.get((y * dstWidth + x) * 4 + c) == src.get((sy * 2 + sx) * 4 + c),
+                            "Pixel (%d, %d) is not extruded from (%d, %d)", x, y, sx, sy);
+                }
+            }
+        }
+    }
+    
+    private static void checkAverage() {
+        ByteBuffer pixels = ByteBuffer.allocate(2 * 4);
+        pixels.put(0, (byte) 200).put(1, (byte) 0).put(2, (byte) 100).put(3, (byte) 255);
+        pixels.put(4, (byte) 100).put(5, (byte) 50).put(6, (byte) 0).put(7, (byte) 255);
+        int argb = TileAtlas.averageColor(pixels, 2);
+        check(argb == (0xFF << 24 | 150 << 16 | 25 << 8 | 50), "Wrong average colour: %08x", argb);
+        check(TileAtlas.averageColor(pixels, 0) == 0xFFFFFFFF, "No pixels must average to white");
+    }
+    
+    private static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new IllegalStateException(String.format(message, args));
+        }
+    }
+}